@@ -0,0 +1,114 @@
+package hashtable.benchmarks;
+
+import hashtable.SimpleHashtable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Common view of the benchmarked tables, so every benchmark runs unchanged against each of them.
+ *
+ * @author sskender
+ */
+public interface BenchmarkTable {
+
+    void put(Object key, Object value);
+
+    Object get(Object key);
+
+    boolean containsKey(Object key);
+
+    void remove(Object key);
+
+    boolean containsValue(Object value);
+
+
+    /**
+     * Benchmarked implementations.
+     */
+    public enum Implementation {
+
+        SIMPLE_HASHTABLE {
+            @Override
+            BenchmarkTable create(double loadFactor) {
+                SimpleHashtable<Object, Object> table = new SimpleHashtable<>(16, loadFactor, false);
+
+                return new BenchmarkTable() {
+
+                    @Override
+                    public void put(Object key, Object value) {
+                        table.put(key, value);
+                    }
+
+                    @Override
+                    public Object get(Object key) {
+                        return table.get(key);
+                    }
+
+                    @Override
+                    public boolean containsKey(Object key) {
+                        return table.containsKey(key);
+                    }
+
+                    @Override
+                    public void remove(Object key) {
+                        table.remove(key);
+                    }
+
+                    @Override
+                    public boolean containsValue(Object value) {
+                        return table.containsValue(value);
+                    }
+
+                };
+            }
+        },
+
+        HASH_MAP {
+            @Override
+            BenchmarkTable create(double loadFactor) {
+                Map<Object, Object> map = new HashMap<>(16, (float) loadFactor);
+
+                return new BenchmarkTable() {
+
+                    @Override
+                    public void put(Object key, Object value) {
+                        map.put(key, value);
+                    }
+
+                    @Override
+                    public Object get(Object key) {
+                        return map.get(key);
+                    }
+
+                    @Override
+                    public boolean containsKey(Object key) {
+                        return map.containsKey(key);
+                    }
+
+                    @Override
+                    public void remove(Object key) {
+                        map.remove(key);
+                    }
+
+                    @Override
+                    public boolean containsValue(Object value) {
+                        return map.containsValue(value);
+                    }
+
+                };
+            }
+        };
+
+
+        /**
+         * Create empty table which grows at given load factor.
+         *
+         * @param loadFactor maximum ratio of pairs to slots
+         * @return table
+         */
+        abstract BenchmarkTable create(double loadFactor);
+
+    }
+
+}
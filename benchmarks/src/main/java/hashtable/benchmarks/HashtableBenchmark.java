@@ -0,0 +1,177 @@
+package hashtable.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single operations on a filled table, every implementation with the same keys.
+ * <p>
+ * Each invocation uses the next key of a shuffled array,
+ * so lookups do not keep hitting the same cache lines.
+ * Table is filled once per trial, outside of any measured iteration,
+ * and put and remove benchmarks only overwrite pairs or put back what they removed,
+ * so table keeps its size and contents.
+ * Keys and values are boxed up front, so allocation reported by the GC profiler
+ * is allocation of the table itself.
+ *
+ * @author sskender
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashtableBenchmark {
+
+
+    /* value which is never in table */
+    private static final Object MISSING_VALUE = -1;
+
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"SEQUENTIAL_INTEGER", "RANDOM_STRING", "COLLIDING"})
+    private KeyDistribution distribution;
+
+    @Param({"0.5", "0.75", "1.0"})
+    private double loadFactor;
+
+    @Param({"SIMPLE_HASHTABLE", "HASH_MAP"})
+    private BenchmarkTable.Implementation implementation;
+
+    private BenchmarkTable table;
+
+    /* keys in table, and keys which are never in table */
+    private Object[] keys;
+    private Object[] missingKeys;
+
+    /* values[i] is value of keys[i] */
+    private Object[] values;
+
+    private int next;
+
+
+    @Setup(Level.Trial)
+    public void fillTable() {
+        Random random = new Random(42);
+        this.keys = this.distribution.keys(0, this.size, random);
+        this.missingKeys = this.distribution.keys(this.size, this.size, random);
+        this.values = new Object[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.values[i] = i;
+        }
+
+        this.table = this.implementation.create(this.loadFactor);
+        for (int i = 0; i < this.keys.length; i++) {
+            this.table.put(this.keys[i], this.values[i]);
+        }
+
+        /* table is filled in id order, lookups go in random order */
+        shuffle(this.keys, this.values, random);
+        shuffle(this.missingKeys, null, random);
+        this.next = 0;
+    }
+
+
+    /**
+     * Shuffle array, and paired array the same way if it is not null.
+     */
+    private static void shuffle(Object[] array, Object[] paired, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            swap(array, i, j);
+            if (paired != null) {
+                swap(paired, i, j);
+            }
+        }
+    }
+
+
+    private static void swap(Object[] array, int i, int j) {
+        Object temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+
+    private int nextIndex() {
+        int index = this.next;
+        this.next = index + 1 == this.size ? 0 : index + 1;
+        return index;
+    }
+
+
+    @Benchmark
+    public Object getHit() {
+        return this.table.get(this.keys[nextIndex()]);
+    }
+
+
+    @Benchmark
+    public Object getMiss() {
+        return this.table.get(this.missingKeys[nextIndex()]);
+    }
+
+
+    @Benchmark
+    public boolean containsKey() {
+        return this.table.containsKey(this.keys[nextIndex()]);
+    }
+
+
+    @Benchmark
+    public void putOverwrite() {
+        int index = nextIndex();
+        this.table.put(this.keys[index], this.values[index]);
+    }
+
+
+    /**
+     * Remove key and put it back, so size of table stays the same.
+     */
+    @Benchmark
+    public void removeAndPut() {
+        int index = nextIndex();
+        this.table.remove(this.keys[index]);
+        this.table.put(this.keys[index], this.values[index]);
+    }
+
+
+    /**
+     * Value which is not in table, so whole table is scanned.
+     */
+    @Benchmark
+    public boolean containsValueMiss() {
+        return this.table.containsValue(MISSING_VALUE);
+    }
+
+
+    /**
+     * Fill an empty table, including all of its growth.
+     */
+    @Benchmark
+    public BenchmarkTable fill() {
+        BenchmarkTable fresh = this.implementation.create(this.loadFactor);
+        for (int i = 0; i < this.keys.length; i++) {
+            fresh.put(this.keys[i], this.values[i]);
+        }
+        return fresh;
+    }
+
+
+}
@@ -0,0 +1,111 @@
+package hashtable.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Kinds of keys tables are benchmarked with.
+ *
+ * @author sskender
+ */
+public enum KeyDistribution {
+
+    /** Integer 0, 1, 2, ... which hash to consecutive slots */
+    SEQUENTIAL_INTEGER {
+        @Override
+        Object key(int id, Random random) {
+            return id;
+        }
+    },
+
+    /** random alphanumeric String of 8 to 24 characters */
+    RANDOM_STRING {
+        @Override
+        Object key(int id, Random random) {
+            char[] chars = new char[8 + random.nextInt(17)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            }
+            /* id suffix keeps keys distinct */
+            return new String(chars) + id;
+        }
+    },
+
+    /** keys which share a hash code in groups of COLLISIONS, long chains or trees in every table */
+    COLLIDING {
+        @Override
+        Object key(int id, Random random) {
+            return new CollidingKey(id);
+        }
+    };
+
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    static final int COLLISIONS = 16;
+
+
+    /**
+     * Create key number id.
+     * Keys with different ids are never equal.
+     *
+     * @param id     key number
+     * @param random source of randomness, seeded by the caller
+     * @return key
+     */
+    abstract Object key(int id, Random random);
+
+
+    /**
+     * Create count keys with ids starting at first.
+     */
+    Object[] keys(int first, int count, Random random) {
+        Object[] keys = new Object[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = key(first + i, random);
+        }
+        return keys;
+    }
+
+
+    /**
+     * Key with deliberately poor hash code.
+     * Comparable, so tables which turn long chains into trees can do so.
+     */
+    static final class CollidingKey implements Comparable<CollidingKey> {
+
+
+        private final int id;
+
+
+        CollidingKey(int id) {
+            this.id = id;
+        }
+
+
+        @Override
+        public int hashCode() {
+            return this.id / COLLISIONS;
+        }
+
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == this.id;
+        }
+
+
+        @Override
+        public int compareTo(CollidingKey other) {
+            return Integer.compare(this.id, other.id);
+        }
+
+
+        @Override
+        public String toString() {
+            return "key" + this.id;
+        }
+
+
+    }
+
+}
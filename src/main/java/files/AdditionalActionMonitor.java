@@ -7,9 +7,28 @@ import java.nio.file.Path;
  * While navigating file tree,
  * also call methods from this interface,
  * for the lulz.
+ * <p>
+ * Default directory actions print to console, which is slow on large trees.
+ * Use NO_OP to skip them, or AsyncMonitor to handle events on a background thread.
+ * In parallel search methods are called from several threads at once.
  */
 public interface AdditionalActionMonitor {
 
+    /**
+     * Monitor which does nothing, and costs nothing.
+     */
+    AdditionalActionMonitor NO_OP = new AdditionalActionMonitor() {
+
+        @Override
+        public void preVisitAction(Path dir) {
+        }
+
+        @Override
+        public void postVisitAction(Path dir) {
+        }
+
+    };
+
     default void preVisitAction(Path dir) {
         System.out.println("I am goind in this directory: " + dir);
     }
@@ -18,4 +37,22 @@ public interface AdditionalActionMonitor {
         System.out.println("I have just left this directory:" + dir);
     }
 
+    /**
+     * Called after file with valid extension was searched.
+     *
+     * @param bytesRead size of file, or zero if file was not read because index already knew it
+     */
+    default void fileVisitAction(Path file, long bytesRead) {
+    }
+
+    /**
+     * Called right after postVisitAction, with statistics of the directory.
+     *
+     * @param files        number of searched files directly in this directory
+     * @param bytesRead    bytes read from those files
+     * @param elapsedNanos time from entering to leaving directory, including its subdirectories
+     */
+    default void directoryVisitAction(Path dir, int files, long bytesRead, long elapsedNanos) {
+    }
+
 }
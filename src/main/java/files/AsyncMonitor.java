@@ -0,0 +1,117 @@
+package files;
+
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Monitor which only publishes events into a ring buffer,
+ * and hands them to consumer on a background thread,
+ * so search never waits for console or other slow output.
+ * <p>
+ * Publishing does not lock and does not allocate.
+ * If consumer falls behind by whole buffer, search waits for it.
+ * Close monitor after search, to deliver remaining events and stop the thread.
+ */
+public class AsyncMonitor implements AdditionalActionMonitor, AutoCloseable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private final EventRingBuffer ringBuffer;
+    private final MonitorEventConsumer consumer;
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    public AsyncMonitor(MonitorEventConsumer consumer) {
+        this(DEFAULT_BUFFER_SIZE, consumer);
+    }
+
+    /**
+     * @param bufferSize number of events buffer holds, power of two
+     * @param consumer   consumer of events
+     */
+    public AsyncMonitor(int bufferSize, MonitorEventConsumer consumer) {
+        this.ringBuffer = new EventRingBuffer(bufferSize);
+        this.consumer = consumer;
+
+        thread = new Thread(this::consume, "async-monitor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void publish(MonitorEvent.Type type, Path path, int files, long bytesRead, long elapsedNanos) {
+        long sequence = ringBuffer.claim();
+        ringBuffer.get(sequence).set(type, path, files, bytesRead, elapsedNanos);
+        ringBuffer.publish(sequence);
+    }
+
+    @Override
+    public void preVisitAction(Path dir) {
+        publish(MonitorEvent.Type.DIRECTORY_ENTERED, dir, 0, 0, 0);
+    }
+
+    @Override
+    public void postVisitAction(Path dir) {
+        // published by directoryVisitAction, together with statistics
+    }
+
+    @Override
+    public void fileVisitAction(Path file, long bytesRead) {
+        publish(MonitorEvent.Type.FILE_VISITED, file, 1, bytesRead, 0);
+    }
+
+    @Override
+    public void directoryVisitAction(Path dir, int files, long bytesRead, long elapsedNanos) {
+        publish(MonitorEvent.Type.DIRECTORY_LEFT, dir, files, bytesRead, elapsedNanos);
+    }
+
+    private void consume() {
+
+        long next = 0;
+        int idle = 0;
+
+        while (true) {
+            long last = ringBuffer.lastPublished(next);
+
+            if (last >= next) {
+                for (long sequence = next; sequence <= last; sequence++) {
+                    try {
+                        consumer.onEvent(ringBuffer.get(sequence), sequence == last);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+
+                ringBuffer.release(last);
+                next = last + 1;
+                idle = 0;
+
+            } else if (closed && ringBuffer.lastClaimed() < next) {
+                break;
+
+            } else if (idle++ < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(50_000);
+            }
+        }
+
+        consumer.onShutdown();
+    }
+
+    /**
+     * Deliver all published events and stop background thread.
+     * Monitor must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
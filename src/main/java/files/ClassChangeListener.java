@@ -0,0 +1,20 @@
+package files;
+
+import java.util.Set;
+
+
+/**
+ * Notified by ClassWatcher after each batch of file changes.
+ * <p>
+ * Called from the watcher thread, so it should return quickly.
+ */
+@FunctionalInterface
+public interface ClassChangeListener {
+
+    /**
+     * @param added   classes which were not found anywhere before this batch
+     * @param removed classes which are not found anywhere any more
+     */
+    void classesChanged(Set<String> added, Set<String> removed);
+
+}
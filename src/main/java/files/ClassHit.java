@@ -0,0 +1,60 @@
+package files;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+
+/**
+ * Java class name found in a file, with place where it was found.
+ */
+public final class ClassHit {
+
+    private final String className;
+    private final Path path;
+    private final int lineNumber;
+
+    public ClassHit(String className, Path path, int lineNumber) {
+        this.className = className;
+        this.path = path;
+        this.lineNumber = lineNumber;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Number of line, starting from one.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClassHit)) {
+            return false;
+        }
+
+        ClassHit other = (ClassHit) o;
+        return lineNumber == other.lineNumber && className.equals(other.className) && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(className, path, lineNumber);
+    }
+
+    @Override
+    public String toString() {
+        return className + " (" + path + ":" + lineNumber + ")";
+    }
+
+}
@@ -0,0 +1,169 @@
+package files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+
+/**
+ * Find java class names in a file without decoding it.
+ * <p>
+ * Finds the same names as regex (.*class\s)([A-Z][a-zA-Z0-9]+)([ie<{ ].*)
+ * matched against every line, at most one name per line.
+ * Only bytes of found names are decoded,
+ * everything else is compared byte by byte, which is safe for UTF-8
+ * because bytes of multi byte characters never look like ASCII.
+ * <p>
+ * Small files are read into a direct buffer which each thread reuses,
+ * larger files are memory mapped.
+ * Scanner has no state of its own, so one instance can be shared by all threads.
+ */
+public class ClassNameScanner {
+
+    // files up to this size are read into the pooled buffer
+    private static final int POOLED_BUFFER_LIMIT = 1 << 20;
+
+    private static final ThreadLocal<ByteBuffer> POOLED_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+
+    /**
+     * Call action with every class name found in file,
+     * and number of line it was found in, starting from one.
+     */
+    public void scan(Path file, ObjIntConsumer<String> action) throws IOException {
+        scan(file, action, null);
+    }
+
+    /**
+     * Same as scan(file, action), but first hand read only view of whole content to contentAction,
+     * so other indexes can be built from the same read.
+     * View is valid only during the call.
+     */
+    public void scan(Path file, ObjIntConsumer<String> action, Consumer<ByteBuffer> contentAction)
+            throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size > POOLED_BUFFER_LIMIT) {
+                // mapping is released by garbage collector, files over 2 GB are scanned up to that
+                scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE)),
+                        action, contentAction);
+                return;
+            }
+
+            ByteBuffer buffer = POOLED_BUFFER.get();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocateDirect(Integer.highestOneBit((int) size) << 1);
+                POOLED_BUFFER.set(buffer);
+            }
+
+            buffer.clear();
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // file may still be growing, read until buffer is full or file ends
+            }
+            buffer.flip();
+
+            scan(buffer, action, contentAction);
+        }
+    }
+
+    /**
+     * Scan bytes from position to limit of buffer.
+     */
+    void scan(ByteBuffer bytes, ObjIntConsumer<String> action, Consumer<ByteBuffer> contentAction) {
+
+        if (contentAction != null) {
+            contentAction.accept(bytes.asReadOnlyBuffer());
+        }
+
+        int limit = bytes.limit();
+        int lineNumber = 1;
+        int lineStart = bytes.position();
+
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && bytes.get(lineEnd) != '\n' && bytes.get(lineEnd) != '\r') {
+                lineEnd++;
+            }
+
+            String className = classNameInLine(bytes, lineStart, lineEnd);
+            if (className != null) {
+                action.accept(className, lineNumber);
+            }
+
+            // \r\n ends one line, like in BufferedReader.readLine()
+            if (lineEnd + 1 < limit && bytes.get(lineEnd) == '\r' && bytes.get(lineEnd + 1) == '\n') {
+                lineEnd++;
+            }
+            lineStart = lineEnd + 1;
+            lineNumber++;
+        }
+    }
+
+    /**
+     * Regex takes the last match in line, because .* in front of class is greedy,
+     * so line is searched from its end.
+     */
+    private static String classNameInLine(ByteBuffer bytes, int lineStart, int lineEnd) {
+
+        // "class" needs at least whitespace and two name characters after it
+        for (int at = lineEnd - 9; at >= lineStart; at--) {
+            if (bytes.get(at) != 'c'
+                    || bytes.get(at + 1) != 'l'
+                    || bytes.get(at + 2) != 'a'
+                    || bytes.get(at + 3) != 's'
+                    || bytes.get(at + 4) != 's'
+                    || !isWhitespace(bytes.get(at + 5))) {
+                continue;
+            }
+
+            int nameStart = at + 6;
+            byte first = bytes.get(nameStart);
+            if (first < 'A' || first > 'Z') {
+                continue;
+            }
+
+            int nameEnd = nameStart + 1;
+            while (nameEnd < lineEnd && isNameCharacter(bytes.get(nameEnd))) {
+                nameEnd++;
+            }
+
+            // longest name of at least two characters which is followed by one of [ie<{ ]
+            if (nameEnd < lineEnd && isNameFollower(bytes.get(nameEnd)) && nameEnd - nameStart >= 2) {
+                return decode(bytes, nameStart, nameEnd);
+            }
+            for (int end = nameEnd - 1; end >= nameStart + 2; end--) {
+                if (bytes.get(end) == 'i' || bytes.get(end) == 'e') {
+                    return decode(bytes, nameStart, end);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == 0x0B || b == '\f';
+    }
+
+    private static boolean isNameCharacter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9');
+    }
+
+    private static boolean isNameFollower(byte b) {
+        return b == 'i' || b == 'e' || b == '<' || b == '{' || b == ' ';
+    }
+
+    private static String decode(ByteBuffer bytes, int start, int end) {
+        byte[] name = new byte[end - start];
+        bytes.get(start, name);
+        return new String(name, StandardCharsets.US_ASCII);
+    }
+
+}
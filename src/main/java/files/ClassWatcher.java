@@ -0,0 +1,330 @@
+package files;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Keep set of found classes up to date while files change,
+ * instead of searching whole tree again.
+ * <p>
+ * Every directory of the tree is registered with a WatchService,
+ * new directories are registered as they appear.
+ * Events are collected until no new event arrives for the debounce time,
+ * so a build touching hundreds of files is handled as one batch.
+ * Only changed files are read again, and subscribers are told
+ * which classes appeared and which disappeared.
+ * A directory which can not be registered, or whose ignore file can not be read,
+ * is left out with everything in it, and watching goes on.
+ * <p>
+ * Created by MyFileSearcher.watch(), runs until closed.
+ */
+public class ClassWatcher implements AutoCloseable {
+
+    // a steady stream of events is still flushed after this many debounce times
+    private static final int MAX_DEBOUNCES = 10;
+
+    private final MyFileSearcher searcher;
+    private final Path root;
+    private final long debounceNanos;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Map<Path, IgnoreRules> rulesOfDirectory = new HashMap<>();
+
+    // owned by watcher thread after constructor
+    private final Map<Path, List<String>> classesOfFile = new HashMap<>();
+    private final Map<String, Integer> occurrencesOfClass = new HashMap<>();
+
+    private final Set<String> classes = ConcurrentHashMap.newKeySet();
+    private final List<ClassChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ClassNameScanner scanner = new ClassNameScanner();
+    private final Thread thread;
+
+    ClassWatcher(MyFileSearcher searcher, Path root, Duration debounce) throws IOException {
+        if (debounce.isNegative()) {
+            throw new IllegalArgumentException("Debounce time can not be negative");
+        }
+
+        this.searcher = searcher;
+        this.root = root;
+        this.debounceNanos = debounce.toNanos();
+        this.watchService = root.getFileSystem().newWatchService();
+
+        // register before reading, so no change is missed in between
+        Set<Path> files = new HashSet<>();
+        registerTree(root, searcher.rootIgnoreRules(), files);
+        update(files);
+
+        thread = new Thread(this::watch, "class-watcher " + root);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Listener is called after every batch which added or removed some class.
+     */
+    public void subscribe(ClassChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(ClassChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Return live view of classes currently found in the tree.
+     */
+    public Set<String> getClasses() {
+        return Collections.unmodifiableSet(classes);
+    }
+
+    /**
+     * Stop watching. Listeners are not called any more.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Register directory and all its subdirectories which are not excluded,
+     * and collect files in them which should be read.
+     */
+    private void registerTree(Path dir, IgnoreRules parentRules, Set<Path> files) throws IOException {
+
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+
+            // ignore rules of each directory we are in
+            private final Deque<IgnoreRules> openRules = new ArrayDeque<>(List.of(parentRules));
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+
+                if (searcher.isExcluded(dir, true, openRules.peek())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                // one directory which can not be watched must not stop watching the rest
+                IgnoreRules rules;
+                WatchKey key;
+                try {
+                    rules = searcher.enterDirectory(dir, openRules.peek());
+                    key = dir.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                } catch (NoSuchFileException e) {
+                    // deleted right after it was created, its event is on the way
+                    return FileVisitResult.SKIP_SUBTREE;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                watchedDirectories.put(key, dir);
+                rulesOfDirectory.put(dir, rules);
+                openRules.push(rules);
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+
+                if (searcher.isIncludedFile(file) && !searcher.isExcluded(file, false, openRules.peek())) {
+                    files.add(file);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+
+                openRules.pop();
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+
+                // file or directory was deleted while walking, its event is on the way,
+                // or directory can not be read, then it is left out like an excluded one
+                if (!(exc instanceof NoSuchFileException)) {
+                    exc.printStackTrace();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+    }
+
+    private void watch() {
+
+        // set when a rescan failed, so the next batch tries again
+        boolean rescan = false;
+
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                boolean overflow = collect(watchService.take(), changed) || rescan;
+
+                // keep collecting until events stop coming for a while
+                long deadline = System.nanoTime() + MAX_DEBOUNCES * debounceNanos;
+                WatchKey key;
+                while (System.nanoTime() < deadline
+                        && (key = watchService.poll(debounceNanos, TimeUnit.NANOSECONDS)) != null) {
+                    overflow |= collect(key, changed);
+                }
+
+                rescan = false;
+                if (overflow) {
+                    // some events were lost, only a full search can tell what changed
+                    changed.addAll(classesOfFile.keySet());
+                    try {
+                        registerTree(root, searcher.rootIgnoreRules(), changed);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        rescan = true;
+                    }
+                }
+
+                update(changed);
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed, stop watching
+        }
+    }
+
+    /**
+     * Collect paths of events of one directory.
+     *
+     * @return true if some events were lost, or a new directory could not be registered
+     */
+    private boolean collect(WatchKey key, Set<Path> changed) {
+
+        Path dir = watchedDirectories.get(key);
+        IgnoreRules rules = rulesOfDirectory.get(dir);
+        boolean overflow = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+
+            Path path = dir.resolve((Path) event.context());
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                // files may have been created in it before it was registered
+                try {
+                    registerTree(path, rules, changed);
+                } catch (IOException e) {
+                    // handled like lost events, by a rescan of whole tree
+                    e.printStackTrace();
+                    overflow = true;
+                }
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                // might have been a directory, drop every file under it
+                for (Path file : classesOfFile.keySet()) {
+                    if (file.startsWith(path)) {
+                        changed.add(file);
+                    }
+                }
+            }
+
+            if (searcher.isIncludedFile(path) && !searcher.isExcluded(path, false, rules)) {
+                changed.add(path);
+            }
+        }
+
+        // key of deleted directory is no longer valid
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+            rulesOfDirectory.remove(dir);
+        }
+
+        return overflow;
+    }
+
+    /**
+     * Read changed files again, or forget them if they are gone,
+     * and tell listeners which classes appeared or disappeared.
+     */
+    private void update(Set<Path> changed) {
+
+        Set<String> added = new HashSet<>();
+        Set<String> removed = new HashSet<>();
+
+        for (Path file : changed) {
+            List<String> newClasses = new ArrayList<>();
+            if (Files.isRegularFile(file)) {
+                try {
+                    scanner.scan(file, (className, lineNumber) -> newClasses.add(className));
+                } catch (NoSuchFileException e) {
+                    // deleted after the check, its classes are removed below
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+            }
+
+            List<String> oldClasses = newClasses.isEmpty()
+                    ? classesOfFile.remove(file)
+                    : classesOfFile.put(file, newClasses);
+
+            if (oldClasses != null) {
+                for (String className : oldClasses) {
+                    if (occurrencesOfClass.merge(className, -1, Integer::sum) == 0) {
+                        occurrencesOfClass.remove(className);
+                        removed.add(className);
+                    }
+                }
+            }
+            for (String className : newClasses) {
+                if (occurrencesOfClass.merge(className, 1, Integer::sum) == 1) {
+                    added.add(className);
+                }
+            }
+        }
+
+        // class moved from one file to another in the same batch did not change
+        Set<String> moved = new HashSet<>(added);
+        moved.retainAll(removed);
+        added.removeAll(moved);
+        removed.removeAll(moved);
+
+        classes.addAll(added);
+        classes.removeAll(removed);
+
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            for (ClassChangeListener listener : listeners) {
+                listener.classesChanged(Collections.unmodifiableSet(added), Collections.unmodifiableSet(removed));
+            }
+        }
+    }
+
+}
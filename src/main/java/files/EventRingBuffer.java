@@ -0,0 +1,96 @@
+package files;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Bounded lock free ring buffer of reusable events,
+ * for any number of publishing threads and one consuming thread.
+ * <p>
+ * Publisher claims next sequence number, fills the event in slot of that sequence,
+ * and marks slot as published with that sequence.
+ * Consumer takes every published event up to the first gap as one batch.
+ * When buffer is full, publisher waits for consumer, so no event is lost.
+ */
+final class EventRingBuffer {
+
+    private final MonitorEvent[] events;
+    private final int mask;
+
+    // sequence last published into each slot
+    private final AtomicLongArray published;
+
+    private final AtomicLong claimed = new AtomicLong(-1);
+
+    // written only by consumer
+    private volatile long consumed = -1;
+
+    EventRingBuffer(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+
+        events = new MonitorEvent[capacity];
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new MonitorEvent();
+            published.set(i, -1);
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Claim next slot, waiting while buffer is full.
+     *
+     * @return sequence of claimed slot
+     */
+    long claim() {
+        long sequence = claimed.incrementAndGet();
+
+        for (int spins = 0; sequence - consumed > events.length; spins++) {
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+
+        return sequence;
+    }
+
+    MonitorEvent get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        published.setRelease((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Return last sequence which is published together with all sequences before it.
+     *
+     * @param next first sequence not consumed yet
+     * @return last published sequence, or next - 1 if next is not published yet
+     */
+    long lastPublished(long next) {
+        long sequence = next;
+        while (sequence - next < events.length && published.getAcquire((int) sequence & mask) == sequence) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    /**
+     * Hand slots up to sequence back to publishers.
+     */
+    void release(long sequence) {
+        consumed = sequence;
+    }
+
+    long lastClaimed() {
+        return claimed.get();
+    }
+
+}
@@ -0,0 +1,207 @@
+package files;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * On disk index of scanned files,
+ * so repeated searches read only files which changed since last time.
+ * <p>
+ * For each file index keeps its size, modification time
+ * and class names found in it.
+ * File whose size and modification time did not change is not read again.
+ * <p>
+ * Every search builds the next generation of index from files it sees,
+ * so deleted files simply drop out of it.
+ * Index is only a cache: if its file is missing or damaged, index starts empty.
+ */
+class FileIndex {
+
+    private static final int MAGIC = 0x46494458;
+    private static final int VERSION = 2;
+
+    // some file systems keep modification time in whole seconds, or even two
+    private static final long TIMESTAMP_GRANULARITY = TimeUnit.SECONDS.toNanos(2);
+
+    private final Path indexFile;
+
+    // entries loaded from disk, and entries of the search in progress
+    private Map<String, Entry> previous = Collections.emptyMap();
+    private Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    // when search of saved index started, and when search in progress started
+    private long savedAt = Long.MIN_VALUE;
+    private long startedAt;
+
+    FileIndex(Path indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    static final class Entry {
+
+        final long size;
+        final long modified;
+        final List<String> classNames;
+
+        Entry(long size, long modified, List<String> classNames) {
+            this.size = size;
+            this.modified = modified;
+            this.classNames = classNames;
+        }
+
+        /**
+         * File modified around the time its search started could have changed again
+         * after it was scanned, within the same timestamp,
+         * so such file is never trusted.
+         */
+        boolean isUpToDate(BasicFileAttributes attrs, long savedAt) {
+            long modified = modifiedNanos(attrs);
+            return attrs.size() == size
+                    && modified == this.modified
+                    && modified < savedAt - TIMESTAMP_GRANULARITY;
+        }
+
+    }
+
+    static long modifiedNanos(BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Start next generation of index.
+     */
+    void begin() {
+        startedAt = System.currentTimeMillis() * 1_000_000;
+        current = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * When search of last saved index started, which identifies its generation.
+     */
+    long getSavedAt() {
+        return savedAt;
+    }
+
+    /**
+     * When search in progress started, which becomes getSavedAt once it is saved.
+     */
+    long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Return entry of file from last saved index, if file has not changed since,
+     * otherwise return null.
+     */
+    Entry lookup(String file, BasicFileAttributes attrs) {
+        Entry entry = previous.get(file);
+        return entry != null && entry.isUpToDate(attrs, savedAt) ? entry : null;
+    }
+
+    /**
+     * Keep entry in next generation of index.
+     */
+    void keep(String file, Entry entry) {
+        current.put(file, entry);
+    }
+
+    /**
+     * Load index from disk, or start empty if there is none.
+     */
+    void load() {
+
+        Map<String, Entry> entries = new HashMap<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+
+            long savedAt = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                return;
+            }
+
+            for (int i = 0; i < count; i++) {
+                String file = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+
+                int classCount = in.readInt();
+                if (classCount < 0) {
+                    return;
+                }
+                List<String> classNames = new ArrayList<>();
+                for (int j = 0; j < classCount; j++) {
+                    classNames.add(in.readUTF());
+                }
+
+                entries.put(file, new Entry(size, modified, classNames));
+            }
+
+            previous = entries;
+            this.savedAt = savedAt;
+
+        } catch (NoSuchFileException e) {
+            // first search, nothing indexed yet
+        } catch (IOException | RuntimeException e) {
+            // damaged index, everything is read again
+        }
+    }
+
+    /**
+     * Save entries of finished search and make them the base of the next one.
+     * Index is written to a temporary file first, forced to disk and then moved in place,
+     * so a crash never leaves a half written index behind.
+     */
+    void save() throws IOException {
+
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(startedAt);
+            out.writeInt(current.size());
+
+            for (Map.Entry<String, Entry> file : current.entrySet()) {
+                Entry entry = file.getValue();
+                out.writeUTF(file.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+
+                out.writeInt(entry.classNames.size());
+                for (String className : entry.classNames) {
+                    out.writeUTF(className);
+                }
+            }
+
+            // data must be on disk before rename is, or power loss can leave an empty index
+            out.flush();
+            channel.force(true);
+
+            Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // left only if writing failed
+            Files.deleteIfExists(temporary);
+        }
+
+        previous = current;
+        savedAt = startedAt;
+    }
+
+}
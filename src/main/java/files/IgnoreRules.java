@@ -0,0 +1,157 @@
+package files;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Rules of .gitignore style files, for pruning directories while walking.
+ * <p>
+ * Supported syntax:
+ * <ul>
+ * <li>blank lines and lines starting with # are skipped</li>
+ * <li>! in front of pattern includes again what earlier rules excluded</li>
+ * <li>/ at the end matches only directories</li>
+ * <li>pattern with / at the start or in the middle is relative to directory of the ignore file,
+ * any other pattern matches file name at any depth below it</li>
+ * <li>*, ?, [...] and ** wildcards</li>
+ * </ul>
+ * Rules of each directory are chained to rules of its parent.
+ * Deeper ignore files win over shallower ones, and in one file last matching rule wins.
+ * Chains are immutable, so parallel walk can share them between threads.
+ */
+final class IgnoreRules {
+
+    static final IgnoreRules NONE = new IgnoreRules(null, null, List.of());
+
+    private final IgnoreRules parent;
+    private final Path base;
+    private final List<Rule> rules;
+
+    private IgnoreRules(IgnoreRules parent, Path base, List<Rule> rules) {
+        this.parent = parent;
+        this.base = base;
+        this.rules = rules;
+    }
+
+    private static final class Rule {
+
+        final PathMatcher matcher;
+        final boolean negated;
+        final boolean directoryOnly;
+        final boolean anchored;
+
+        Rule(PathMatcher matcher, boolean negated, boolean directoryOnly, boolean anchored) {
+            this.matcher = matcher;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.anchored = anchored;
+        }
+
+    }
+
+    /**
+     * Create rules from patterns, relative to base directory.
+     */
+    static IgnoreRules of(Path base, List<String> patterns) {
+        return NONE.with(base, patterns);
+    }
+
+    private IgnoreRules with(Path base, List<String> patterns) {
+
+        List<Rule> rules = new ArrayList<>();
+        for (String pattern : patterns) {
+            Rule rule = parse(base.getFileSystem(), pattern);
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+
+        return rules.isEmpty() ? this : new IgnoreRules(this, base, rules);
+    }
+
+    /**
+     * Return rules which apply inside directory,
+     * which are these rules and rules of ignore files found in directory.
+     */
+    IgnoreRules enter(Path dir, String[] ignoreFileNames) throws IOException {
+
+        IgnoreRules result = this;
+
+        for (String ignoreFileName : ignoreFileNames) {
+            Path ignoreFile = dir.resolve(ignoreFileName);
+            if (Files.isRegularFile(ignoreFile)) {
+                result = result.with(dir, Files.readAllLines(ignoreFile, StandardCharsets.UTF_8));
+            }
+        }
+
+        return result;
+    }
+
+    boolean isIgnored(Path path, boolean isDirectory) {
+
+        for (IgnoreRules level = this; level != NONE; level = level.parent) {
+            if (!path.startsWith(level.base) || path.equals(level.base)) {
+                continue;
+            }
+
+            Path relative = null;
+            for (int i = level.rules.size() - 1; i >= 0; i--) {
+                Rule rule = level.rules.get(i);
+
+                if (rule.directoryOnly && !isDirectory) {
+                    continue;
+                }
+
+                if (rule.anchored && relative == null) {
+                    relative = level.base.relativize(path);
+                }
+                if (rule.matcher.matches(rule.anchored ? relative : path.getFileName())) {
+                    return !rule.negated;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static Rule parse(FileSystem fileSystem, String line) {
+
+        String pattern = line.strip();
+        if (pattern.isEmpty() || pattern.startsWith("#")) {
+            return null;
+        }
+
+        boolean negated = pattern.startsWith("!");
+        if (negated) {
+            pattern = pattern.substring(1);
+        }
+
+        boolean directoryOnly = pattern.endsWith("/");
+        if (directoryOnly) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+
+        boolean anchored = pattern.contains("/");
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        if (pattern.isEmpty()) {
+            return null;
+        }
+
+        // braces are plain characters in ignore files, but groups in glob
+        String glob = pattern.replace("{", "\\{").replace("}", "\\}");
+
+        // leading **/ also matches zero directories
+        if (glob.startsWith("**/")) {
+            glob = "{**/,}" + glob.substring(3);
+        }
+
+        return new Rule(fileSystem.getPathMatcher("glob:" + glob), negated, directoryOnly, anchored);
+    }
+
+}
@@ -0,0 +1,60 @@
+package files;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+
+/**
+ * Line of a file which matched a TrigramIndex query.
+ */
+public final class LineMatch {
+
+    private final Path path;
+    private final int lineNumber;
+    private final String line;
+
+    public LineMatch(Path path, int lineNumber, String line) {
+        this.path = path;
+        this.lineNumber = lineNumber;
+        this.line = line;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Number of line, starting from one.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LineMatch)) {
+            return false;
+        }
+
+        LineMatch other = (LineMatch) o;
+        return lineNumber == other.lineNumber && path.equals(other.path) && line.equals(other.line);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, lineNumber, line);
+    }
+
+    @Override
+    public String toString() {
+        return path + ":" + lineNumber + ": " + line;
+    }
+
+}
@@ -0,0 +1,75 @@
+package files;
+
+import java.nio.file.Path;
+
+
+/**
+ * One event of AsyncMonitor.
+ * <p>
+ * Events are slots of a ring buffer which are reused,
+ * so consumer must copy what it needs and not keep the event itself.
+ */
+public final class MonitorEvent {
+
+    public enum Type {
+        DIRECTORY_ENTERED,
+        FILE_VISITED,
+        DIRECTORY_LEFT
+    }
+
+    private Type type;
+    private Path path;
+    private int files;
+    private long bytesRead;
+    private long elapsedNanos;
+    private long timestamp;
+
+    MonitorEvent() {
+    }
+
+    void set(Type type, Path path, int files, long bytesRead, long elapsedNanos) {
+        this.type = type;
+        this.path = path;
+        this.files = files;
+        this.bytesRead = bytesRead;
+        this.elapsedNanos = elapsedNanos;
+        this.timestamp = System.nanoTime();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Number of files searched directly in directory, for DIRECTORY_LEFT.
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * Bytes read from file, or from files directly in directory for DIRECTORY_LEFT.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Time spent in directory and its subdirectories, for DIRECTORY_LEFT.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * System.nanoTime() when event was published.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+}
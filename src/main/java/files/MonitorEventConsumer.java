@@ -0,0 +1,31 @@
+package files;
+
+
+/**
+ * Handles events of AsyncMonitor on its background thread.
+ * <p>
+ * Events come in batches of whatever was published since the last batch,
+ * so consumer can do expensive work, like printing or flushing, once per batch.
+ */
+@FunctionalInterface
+public interface MonitorEventConsumer {
+
+    /**
+     * Consumer which ignores all events.
+     */
+    MonitorEventConsumer NO_OP = (event, endOfBatch) -> {
+    };
+
+    /**
+     * @param event      event, valid only during this call
+     * @param endOfBatch true for last event of current batch
+     */
+    void onEvent(MonitorEvent event, boolean endOfBatch);
+
+    /**
+     * Called once on background thread after the last event.
+     */
+    default void onShutdown() {
+    }
+
+}
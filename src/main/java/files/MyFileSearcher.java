@@ -1,12 +1,25 @@
 package files;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.HashSet;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -14,9 +27,27 @@ import java.util.regex.Pattern;
  * find all files with certain extensions.
  * <p>
  * Read each file,
- * extract java class name from it,
+ * extract java class name from it (see ClassNameScanner),
  * save it to a list,
  * and then return that list.
+ * <p>
+ * With parallelism greater than one, directories are walked
+ * and files are read by a ForkJoinPool of that many threads.
+ * Monitor is then called from several threads at once,
+ * so it has to be thread safe.
+ * <p>
+ * With an index file (see setIndexFile), class names found in each file
+ * are saved to disk, and later searches read only files which were added or changed.
+ * <p>
+ * With a trigram index file (see setTrigramIndexFile), contents of searched files
+ * are indexed too, so TrigramIndex can later find text in them without reading the whole tree.
+ * <p>
+ * Long running tools can watch the tree instead (see watch),
+ * which keeps found classes up to date without searching again.
+ * <p>
+ * Directories matching exclude globs or rules of ignore files (like .gitignore)
+ * are skipped with everything in them, see setExcludeGlobs and setIgnoreFiles.
+ * Besides files with valid extensions, files matching include globs are searched too.
  */
 public class MyFileSearcher {
 
@@ -24,33 +55,381 @@ public class MyFileSearcher {
 
     private Path pathToSearch;
     private String[] extensions;
+    private int parallelism;
+
+    // ".java" for extension "java", so no string is built while matching
+    private String[] validSuffixes;
+    private PathMatcher[] includeMatchers = new PathMatcher[0];
+
+    private IgnoreRules excludeRules = IgnoreRules.NONE;
+    private String[] ignoreFileNames = new String[0];
+
+    private Set<String> foundJavaClasses = ConcurrentHashMap.newKeySet();
+
+    private final ClassNameScanner scanner = new ClassNameScanner();
+
+    private FileIndex index;
 
-    private Set<String> foundJavaClasses = new HashSet<>();
+    private Path trigramIndexFile;
+    private TrigramIndex.Builder trigramBuilder;
 
     public MyFileSearcher(AdditionalActionMonitor myMonitor, String pathToSearch, String... extensions) {
+        this(myMonitor, pathToSearch, 1, extensions);
+    }
+
+    public MyFileSearcher(AdditionalActionMonitor myMonitor, String pathToSearch, int parallelism,
+                          String... extensions) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least one");
+        }
+
         this.myMonitor = myMonitor;
         this.pathToSearch = Paths.get(pathToSearch);
         this.extensions = extensions;
+        this.parallelism = parallelism;
+
+        this.validSuffixes = new String[extensions.length];
+        for (int i = 0; i < extensions.length; i++) {
+            validSuffixes[i] = "." + extensions[i];
+        }
+    }
+
+    /**
+     * Also search files which match any of these globs,
+     * relative to path to search, like "**&#47;*.groovy" or "scripts/*".
+     * Globs are compiled once, here.
+     */
+    public void setIncludeGlobs(String... globs) {
+
+        FileSystem fileSystem = pathToSearch.getFileSystem();
+        includeMatchers = new PathMatcher[globs.length];
+        for (int i = 0; i < globs.length; i++) {
+            includeMatchers[i] = fileSystem.getPathMatcher("glob:" + globs[i]);
+        }
+    }
+
+    /**
+     * Skip files and directories matching any of these patterns,
+     * which have the same syntax as lines of .gitignore, relative to path to search.
+     * For example "target/" skips every directory named target, "/docs" only the top one.
+     */
+    public void setExcludeGlobs(String... globs) {
+        excludeRules = IgnoreRules.of(pathToSearch, List.of(globs));
+    }
+
+    /**
+     * Honour ignore files with these names, like ".gitignore",
+     * in every directory of the tree.
+     * With ignore files, .git directories are always skipped too.
+     */
+    public void setIgnoreFiles(String... fileNames) {
+        ignoreFileNames = fileNames.clone();
+    }
+
+    /**
+     * Rules which apply in path to search, before its own ignore files are read.
+     */
+    IgnoreRules rootIgnoreRules() {
+        return ignoreFileNames.length == 0 ? IgnoreRules.NONE : IgnoreRules.of(pathToSearch, List.of(".git/"));
+    }
+
+    /**
+     * Return rules which apply inside directory.
+     */
+    IgnoreRules enterDirectory(Path dir, IgnoreRules rules) throws IOException {
+        return ignoreFileNames.length == 0 ? rules : rules.enter(dir, ignoreFileNames);
+    }
+
+    boolean isExcluded(Path path, boolean isDirectory, IgnoreRules rules) {
+        return excludeRules.isIgnored(path, isDirectory) || rules.isIgnored(path, isDirectory);
+    }
+
+    /**
+     * Keep index of scanned files in indexFile,
+     * so later searches, also by later runs, read only changed files.
+     */
+    public void setIndexFile(Path indexFile) {
+        index = new FileIndex(indexFile);
+        index.load();
+    }
+
+    /**
+     * Build trigram index of contents of every searched file while searching,
+     * and write it to trigramIndexFile after each search, see TrigramIndex.open.
+     * With index of scanned files (see setIndexFile), files which did not change are still not read,
+     * their trigrams are taken from trigramIndexFile written by the last search.
+     */
+    public void setTrigramIndexFile(Path trigramIndexFile) {
+        this.trigramIndexFile = trigramIndexFile;
+    }
+
+    /**
+     * Start watching the tree for changes, see ClassWatcher.
+     * Watcher reads the whole tree once, then only files which change.
+     *
+     * @param debounce how long events must stop coming before a batch is handled
+     */
+    public ClassWatcher watch(Duration debounce) throws IOException {
+        return new ClassWatcher(this, pathToSearch, debounce);
+    }
+
+    /**
+     * Return lazy stream of every class found, with file and line where it was found.
+     * <p>
+     * Tree is walked and files are read only as stream is consumed,
+     * so first hits arrive right away, a slow consumer slows the walk down,
+     * and short circuiting operations like limit() or findFirst() stop it early.
+     * Excluded directories are skipped with everything in them, like in getFoundJavaClasses().
+     * Stream holds open directories, so it should be closed,
+     * preferably with try-with-resources.
+     * Monitor and index are not used, stream always reads files.
+     * Errors while walking or reading are thrown as UncheckedIOException.
+     */
+    public Stream<ClassHit> streamClassHits() throws IOException {
+
+        FileWalker walker = new FileWalker();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(walker,
+                        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false)
+                .onClose(walker::close)
+                .flatMap(this::classHits);
+    }
+
+    private Stream<ClassHit> classHits(Path file) {
+
+        List<ClassHit> hits = new ArrayList<>();
+        try {
+            scanner.scan(file, (className, lineNumber) -> hits.add(new ClassHit(className, file, lineNumber)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return hits.stream();
     }
 
     public Set<String> getFoundJavaClasses() {
 
+        // every search starts from scratch, so classes of deleted files disappear
+        foundJavaClasses.clear();
+        if (index != null) {
+            index.begin();
+        }
+        if (trigramIndexFile != null) {
+            trigramBuilder = new TrigramIndex.Builder();
+            if (index != null) {
+                trigramBuilder.loadPrevious(trigramIndexFile, index.getSavedAt());
+            }
+        }
+
         try {
-            Files.walkFileTree(pathToSearch, new MyFileVisitor());
+            if (parallelism == 1) {
+                Files.walkFileTree(pathToSearch, new MyFileVisitor());
+            } else {
+                walkInParallel();
+            }
+
+            // unfinished search would drop files it did not reach from index
+            if (index != null) {
+                index.save();
+            }
+            if (trigramBuilder != null) {
+                trigramBuilder.write(trigramIndexFile, index == null ? 0 : index.getStartedAt());
+            }
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            trigramBuilder = null;
         }
 
         return foundJavaClasses;
     }
 
+    private void walkInParallel() throws IOException {
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(pathToSearch, rootIgnoreRules()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    boolean isIncludedFile(Path file) {
+
+        // navigate each file, check if extension matches
+        String name = file.toString();
+        for (String validSuffix : validSuffixes) {
+            if (name.endsWith(validSuffix)) {
+                return true;
+            }
+        }
+
+        if (includeMatchers.length > 0) {
+            Path relative = pathToSearch.relativize(file);
+            for (PathMatcher includeMatcher : includeMatchers) {
+                if (includeMatcher.matches(relative)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return number of bytes read from file
+     */
+    private long readJavaClasses(Path file, BasicFileAttributes attrs) throws IOException {
+
+        long bytesRead = 0;
+
+        // trigrams are taken from the same bytes scanner reads, file is read only once
+        TrigramIndex.Builder builder = trigramBuilder;
+        Consumer<ByteBuffer> contentAction = builder == null ? null : content -> builder.add(file, content);
+
+        if (index == null) {
+            // scanner reads bytes directly and decodes only the class names it finds
+            scanner.scan(file, (className, lineNumber) -> foundJavaClasses.add(className), contentAction);
+            bytesRead = attrs.size();
+        } else {
+            String key = file.toAbsolutePath().normalize().toString();
+            FileIndex.Entry entry = index.lookup(key, attrs);
+            // file missing from last trigram index is read again, to index its trigrams
+            if (entry != null && builder != null && !builder.reuse(file)) {
+                entry = null;
+            }
+
+            if (entry == null) {
+                List<String> classNames = new ArrayList<>();
+                scanner.scan(file, (className, lineNumber) -> classNames.add(className),
+                        contentAction);
+                entry = new FileIndex.Entry(attrs.size(), FileIndex.modifiedNanos(attrs), classNames);
+                bytesRead = attrs.size();
+            }
+
+            index.keep(key, entry);
+            foundJavaClasses.addAll(entry.classNames);
+        }
+
+        myMonitor.fileVisitAction(file, bytesRead);
+        return bytesRead;
+    }
+
+    /**
+     * Pull based walk of the tree, which returns files to search one by one
+     * and lists a directory only when walk gets to it.
+     * Excluded directories are never opened.
+     */
+    private class FileWalker implements Iterator<Path> {
+
+        // directories being listed, with their ignore rules, innermost first
+        private final Deque<DirectoryStream<Path>> openStreams = new ArrayDeque<>();
+        private final Deque<Iterator<Path>> openIterators = new ArrayDeque<>();
+        private final Deque<IgnoreRules> openRules = new ArrayDeque<>();
+
+        private Path next;
+
+        FileWalker() throws IOException {
+            IgnoreRules rules = rootIgnoreRules();
+            if (!isExcluded(pathToSearch, true, rules)) {
+                open(pathToSearch, rules);
+            }
+        }
+
+        private void open(Path dir, IgnoreRules parentRules) throws IOException {
+            IgnoreRules rules = enterDirectory(dir, parentRules);
+            DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+            openStreams.push(stream);
+            openIterators.push(stream.iterator());
+            openRules.push(rules);
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            try {
+                while (next == null && !openIterators.isEmpty()) {
+                    Iterator<Path> entries = openIterators.peek();
+                    if (!entries.hasNext()) {
+                        openIterators.pop();
+                        openRules.pop();
+                        openStreams.pop().close();
+                        continue;
+                    }
+
+                    // like walkFileTree, symbolic links are not followed into directories
+                    Path path = entries.next();
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+
+                    if (attrs.isDirectory()) {
+                        if (!isExcluded(path, true, openRules.peek())) {
+                            open(path, openRules.peek());
+                        }
+                    } else if (attrs.isRegularFile() && isIncludedFile(path)
+                            && !isExcluded(path, false, openRules.peek())) {
+                        next = path;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (DirectoryIteratorException e) {
+                throw new UncheckedIOException(e.getCause());
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Path file = next;
+            next = null;
+            return file;
+        }
+
+        void close() {
+            while (!openStreams.isEmpty()) {
+                try {
+                    openStreams.pop().close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            openIterators.clear();
+            openRules.clear();
+        }
+
+    }
+
     private class MyFileVisitor extends SimpleFileVisitor<Path> {
 
+        // start time, number of files and bytes read of each directory we are in
+        private final Deque<long[]> openDirectories = new ArrayDeque<>();
+
+        // ignore rules of each directory we are in
+        private final Deque<IgnoreRules> openRules = new ArrayDeque<>();
+
+        private IgnoreRules currentRules() {
+            return openRules.isEmpty() ? rootIgnoreRules() : openRules.peek();
+        }
+
         @Override
         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
 
+            // skip excluded directory with everything in it
+            if (isExcluded(dir, true, currentRules())) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
             // call additional actions
             myMonitor.preVisitAction(dir);
+            openDirectories.push(new long[]{System.nanoTime(), 0, 0});
+            openRules.push(enterDirectory(dir, currentRules()));
 
             return FileVisitResult.CONTINUE;
         }
@@ -58,42 +437,13 @@ public class MyFileSearcher {
         @Override
         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
 
-            // navigate each file, check if extension matches
-            for (String validExtension : extensions) {
-                if (file.toString().endsWith("." + validExtension)) {
-                    // valid file
-                    // now read file with buffered reader
-                    // grab line with java class name
-
-                    // use this to automatically clean resources
-                    // (no need to close buffer later)
-                    try (BufferedReader bfr =
-                                 new BufferedReader(
-                                         new InputStreamReader(
-                                                 new BufferedInputStream(
-                                                         new FileInputStream(file.toString())
-                                                 ), "UTF-8"
-                                         )
-                                 )
-                    ) {
-                        String line;
-                        String searchRegex = "(.*class\\s)([A-Z][a-zA-Z0-9]+)([ie<{ ].*)";
-                        Pattern pattern = Pattern.compile(searchRegex);
-
-                        while ((line = bfr.readLine()) != null) {
-
-                            if (line.matches(searchRegex)) {
-
-                                Matcher matcher = pattern.matcher(line);
-                                if (matcher.find()) {
-                                    foundJavaClasses.add(matcher.group(2));
-                                }
-
-                            }
-                        }
-
-                    }
+            if (isIncludedFile(file) && !isExcluded(file, attrs.isDirectory(), currentRules())) {
+                long bytesRead = readJavaClasses(file, attrs);
 
+                long[] current = openDirectories.peek();
+                if (current != null) {
+                    current[1]++;
+                    current[2] += bytesRead;
                 }
             }
 
@@ -104,11 +454,84 @@ public class MyFileSearcher {
         public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
 
             // call additional actions
+            long[] current = openDirectories.pop();
+            openRules.pop();
             myMonitor.postVisitAction(dir);
+            myMonitor.directoryVisitAction(dir, (int) current[1], current[2], System.nanoTime() - current[0]);
 
             return FileVisitResult.CONTINUE;
         }
 
     }
 
+    /**
+     * Visit one directory in parallel mode.
+     * <p>
+     * Subdirectories are forked as new tasks,
+     * files are read by this task while they run.
+     * Like walkFileTree, symbolic links are not followed into directories.
+     */
+    @SuppressWarnings("serial")
+    private class DirectoryTask extends RecursiveAction {
+
+        private final Path dir;
+        private final IgnoreRules parentRules;
+
+        DirectoryTask(Path dir, IgnoreRules parentRules) {
+            this.dir = dir;
+            this.parentRules = parentRules;
+        }
+
+        @Override
+        protected void compute() {
+
+            try {
+                // call additional actions
+                myMonitor.preVisitAction(dir);
+                long start = System.nanoTime();
+                IgnoreRules rules = enterDirectory(dir, parentRules);
+
+                List<DirectoryTask> subdirectories = new ArrayList<>();
+                List<Path> files = new ArrayList<>();
+                List<BasicFileAttributes> fileAttributes = new ArrayList<>();
+
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                    for (Path entry : entries) {
+                        BasicFileAttributes attrs =
+                                Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+                        if (attrs.isDirectory()) {
+                            // skip excluded directory with everything in it
+                            if (!isExcluded(entry, true, rules)) {
+                                DirectoryTask task = new DirectoryTask(entry, rules);
+                                task.fork();
+                                subdirectories.add(task);
+                            }
+                        } else if (isIncludedFile(entry) && !isExcluded(entry, false, rules)) {
+                            files.add(entry);
+                            fileAttributes.add(attrs);
+                        }
+                    }
+                }
+
+                long bytesRead = 0;
+                for (int i = 0; i < files.size(); i++) {
+                    bytesRead += readJavaClasses(files.get(i), fileAttributes.get(i));
+                }
+
+                for (DirectoryTask task : subdirectories) {
+                    task.join();
+                }
+
+                // call additional actions
+                myMonitor.postVisitAction(dir);
+                myMonitor.directoryVisitAction(dir, files.size(), bytesRead, System.nanoTime() - start);
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,87 @@
+package files;
+
+
+/**
+ * Consumer of AsyncMonitor which counts searched directories, files and bytes,
+ * and from them files and megabytes per second.
+ * <p>
+ * Counts are published once per batch,
+ * so they can be read from any thread while search is running.
+ */
+public class ThroughputCounter implements MonitorEventConsumer {
+
+    // owned by consumer thread
+    private long directoryCount;
+    private long fileCount;
+    private long byteCount;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private boolean started;
+
+    private volatile long directories;
+    private volatile long files;
+    private volatile long bytes;
+    private volatile long elapsedNanos;
+
+    @Override
+    public void onEvent(MonitorEvent event, boolean endOfBatch) {
+
+        switch (event.getType()) {
+            case DIRECTORY_LEFT:
+                directoryCount++;
+                break;
+            case FILE_VISITED:
+                fileCount++;
+                byteCount += event.getBytesRead();
+                break;
+            default:
+                break;
+        }
+
+        // threads of parallel search publish out of timestamp order
+        if (!started || event.getTimestamp() < firstTimestamp) {
+            firstTimestamp = event.getTimestamp();
+        }
+        if (!started || event.getTimestamp() > lastTimestamp) {
+            lastTimestamp = event.getTimestamp();
+        }
+        started = true;
+
+        if (endOfBatch) {
+            directories = directoryCount;
+            files = fileCount;
+            bytes = byteCount;
+            elapsedNanos = lastTimestamp - firstTimestamp;
+        }
+    }
+
+    public long getDirectories() {
+        return directories;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public double getFilesPerSecond() {
+        long elapsed = elapsedNanos;
+        return elapsed == 0 ? 0 : files * 1e9 / elapsed;
+    }
+
+    public double getMegabytesPerSecond() {
+        long elapsed = elapsedNanos;
+        return elapsed == 0 ? 0 : bytes / (1024.0 * 1024.0) * 1e9 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d directories, %d files, %.1f MB, %.0f files/s, %.1f MB/s",
+                getDirectories(), getFiles(), getBytes() / (1024.0 * 1024.0),
+                getFilesPerSecond(), getMegabytesPerSecond());
+    }
+
+}
@@ -0,0 +1,785 @@
+package files;
+
+import hashtable.IntIntHashtable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+/**
+ * Trigram inverted index of file contents, served from a memory mapped file.
+ * <p>
+ * For every three consecutive bytes found anywhere in searched files,
+ * index keeps the list of files which contain them.
+ * Text can only be in a file which contains all of its trigrams,
+ * so query first intersects those lists,
+ * and then reads only the few candidate files to find matching lines.
+ * <p>
+ * Index is built by MyFileSearcher, see setTrigramIndexFile.
+ * File layout:
+ * <ul>
+ * <li>header - magic, version, number of files, number of trigrams, offsets of paths and postings,
+ * and start of search of the index of scanned files built along, if any</li>
+ * <li>trigrams - sorted table of trigram, offset of its postings and number of its files</li>
+ * <li>paths - offset of each path, then length and UTF-8 bytes of each path</li>
+ * <li>postings - ascending file numbers of each trigram, as varint encoded differences</li>
+ * </ul>
+ * Opening only maps the file, and index is never modified,
+ * so any number of threads can query it at once.
+ * Index is case sensitive, and whole file must fit in 2 GB.
+ */
+public class TrigramIndex {
+
+    private static final int MAGIC = 0x5447524d;
+    private static final int VERSION = 2;
+
+    // magic, version, number of files, number of trigrams, paths offset, postings offset, stamp
+    private static final int HEADER_BYTES = 32;
+    // trigram, postings offset, number of files
+    private static final int TRIGRAM_BYTES = 12;
+
+    private final ByteBuffer buffer;
+    private final int fileCount;
+    private final int trigramCount;
+    private final int pathsOffset;
+    private final long stamp;
+
+    private TrigramIndex(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a trigram index");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported trigram index version " + buffer.getInt(4));
+        }
+
+        this.buffer = buffer;
+        this.fileCount = buffer.getInt(8);
+        this.trigramCount = buffer.getInt(12);
+        this.pathsOffset = buffer.getInt(16);
+        this.stamp = buffer.getLong(24);
+    }
+
+    /**
+     * Map index file into memory.
+     * Mapping is released by garbage collector once index is no longer used.
+     */
+    public static TrigramIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // mapping stays valid after channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TrigramIndex(buffer);
+        }
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public int getTrigramCount() {
+        return trigramCount;
+    }
+
+    /**
+     * Find every line which contains text.
+     */
+    public List<LineMatch> search(String text) throws IOException {
+        return verify(candidates(List.of(List.of(text))), line -> line.contains(text));
+    }
+
+    /**
+     * Find every line in which regex finds a match.
+     * <p>
+     * Literal parts of regex which every match must contain narrow down candidate files,
+     * regex without such parts (or with case insensitive flag) has to read every file.
+     */
+    public List<LineMatch> searchRegex(String regex) throws IOException {
+        Pattern pattern = Pattern.compile(regex);
+        return verify(candidates(requiredLiterals(regex)), line -> pattern.matcher(line).find());
+    }
+
+    /**
+     * Return files which may contain text, without reading them.
+     */
+    public List<Path> candidateFiles(String text) {
+
+        List<Path> files = new ArrayList<>();
+        for (int fileId : candidates(List.of(List.of(text)))) {
+            files.add(path(fileId));
+        }
+        return files;
+    }
+
+    /**
+     * Files which may match any of the alternatives,
+     * where each alternative is a list of literals which all have to be in the file.
+     *
+     * @param alternatives alternatives, or null if any file may match
+     * @return ascending file numbers
+     */
+    private int[] candidates(List<List<String>> alternatives) {
+
+        int[] all = new int[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            all[i] = i;
+        }
+        if (alternatives == null) {
+            return all;
+        }
+
+        int[] result = new int[0];
+        for (List<String> literals : alternatives) {
+            int[] files = all;
+            for (String literal : literals) {
+                byte[] bytes = literal.getBytes(StandardCharsets.UTF_8);
+                for (int i = 0; i + 3 <= bytes.length && files.length > 0; i++) {
+                    files = intersect(files, postings(trigram(bytes[i], bytes[i + 1], bytes[i + 2])));
+                }
+            }
+            result = union(result, files);
+        }
+
+        return result;
+    }
+
+    static int trigram(byte first, byte second, byte third) {
+        return (first & 0xff) << 16 | (second & 0xff) << 8 | (third & 0xff);
+    }
+
+    /**
+     * Binary search for trigram in trigram table, and decode its postings.
+     */
+    private int[] postings(int trigram) {
+
+        int low = 0;
+        int high = trigramCount - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = HEADER_BYTES + middle * TRIGRAM_BYTES;
+            int value = buffer.getInt(position);
+
+            if (value < trigram) {
+                low = middle + 1;
+            } else if (value > trigram) {
+                high = middle - 1;
+            } else {
+                return postingsAt(position);
+            }
+        }
+
+        return new int[0];
+    }
+
+    /**
+     * Decode postings of trigram table entry at position.
+     */
+    private int[] postingsAt(int position) {
+
+        int offset = buffer.getInt(position + 4);
+        int[] files = new int[buffer.getInt(position + 8)];
+        int fileId = 0;
+
+        for (int i = 0; i < files.length; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(offset++);
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            fileId += delta;
+            files[i] = fileId;
+        }
+
+        return files;
+    }
+
+    /**
+     * Turn postings around, into ascending trigrams of each file.
+     *
+     * @return trigrams by path of file
+     */
+    private Map<String, int[]> trigramsOfFiles() {
+
+        int[] counts = new int[fileCount];
+        for (int i = 0; i < trigramCount; i++) {
+            for (int fileId : postingsAt(HEADER_BYTES + i * TRIGRAM_BYTES)) {
+                counts[fileId]++;
+            }
+        }
+
+        int[][] trigrams = new int[fileCount][];
+        for (int fileId = 0; fileId < fileCount; fileId++) {
+            trigrams[fileId] = new int[counts[fileId]];
+        }
+        Arrays.fill(counts, 0);
+
+        for (int i = 0; i < trigramCount; i++) {
+            int position = HEADER_BYTES + i * TRIGRAM_BYTES;
+            int trigram = buffer.getInt(position);
+            for (int fileId : postingsAt(position)) {
+                trigrams[fileId][counts[fileId]++] = trigram;
+            }
+        }
+
+        Map<String, int[]> result = new HashMap<>();
+        for (int fileId = 0; fileId < fileCount; fileId++) {
+            result.put(pathString(fileId), trigrams[fileId]);
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+
+        int[] result = new int[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[count++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    private Path path(int fileId) {
+        return Paths.get(pathString(fileId));
+    }
+
+    private String pathString(int fileId) {
+
+        int offset = buffer.getInt(pathsOffset + fileId * 4);
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + 4, bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private interface LineTest {
+        boolean matches(String line);
+    }
+
+    /**
+     * Read candidate files and keep lines which really match.
+     * Files deleted since index was built are skipped.
+     */
+    private List<LineMatch> verify(int[] candidates, LineTest test) throws IOException {
+
+        List<LineMatch> matches = new ArrayList<>();
+
+        for (int fileId : candidates) {
+            Path file = path(fileId);
+            String content;
+            try {
+                content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+
+            int lineNumber = 1;
+            int lineStart = 0;
+            while (lineStart < content.length()) {
+                int lineEnd = lineStart;
+                while (lineEnd < content.length() && content.charAt(lineEnd) != '\n' && content.charAt(lineEnd) != '\r') {
+                    lineEnd++;
+                }
+
+                String line = content.substring(lineStart, lineEnd);
+                if (test.matches(line)) {
+                    matches.add(new LineMatch(file, lineNumber, line));
+                }
+
+                if (lineEnd + 1 < content.length() && content.charAt(lineEnd) == '\r' && content.charAt(lineEnd + 1) == '\n') {
+                    lineEnd++;
+                }
+                lineStart = lineEnd + 1;
+                lineNumber++;
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * Literals which every match of regex must contain.
+     * <p>
+     * Regex is split on top level |, and each alternative is reduced to runs of plain characters
+     * which are not optional. Groups, character classes, quantifiers and escapes like \d or \p{Upper}
+     * end a run, they are not looked into.
+     *
+     * @return literals of each alternative, or null if some alternative has no literal
+     * of three characters or more, so every file may match
+     */
+    static List<List<String>> requiredLiterals(String regex) {
+
+        // case insensitive or comments mode change what literals mean
+        if (regex.matches("(?s).*\\(\\?[a-zA-Z-]*[ixuU].*")) {
+            return null;
+        }
+
+        List<List<String>> alternatives = new ArrayList<>();
+        int start = 0;
+        int depth = 0;
+        for (int i = 0; i <= regex.length(); i++) {
+            if (i == regex.length() || (regex.charAt(i) == '|' && depth == 0)) {
+                List<String> literals = literals(regex.substring(start, i));
+                if (literals.isEmpty()) {
+                    return null;
+                }
+                alternatives.add(literals);
+                start = i + 1;
+            } else if (regex.charAt(i) == '\\') {
+                i = skipEscape(regex, i) - 1;
+            } else if (regex.charAt(i) == '[') {
+                i = skipClass(regex, i);
+            } else if (regex.charAt(i) == '(') {
+                depth++;
+            } else if (regex.charAt(i) == ')') {
+                depth--;
+            }
+        }
+
+        return alternatives;
+    }
+
+    private static List<String> literals(String branch) {
+
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+
+        int i = 0;
+        while (i < branch.length()) {
+            char c = branch.charAt(i);
+            Character literal = null;
+            int next;
+
+            if (c == '\\' && i + 1 < branch.length()) {
+                char escaped = branch.charAt(i + 1);
+                if (Character.isLetterOrDigit(escaped)) {
+                    // \d, \1, \p{Upper}, \x41, \Q..\E and friends are not plain characters
+                    next = skipEscape(branch, i);
+                } else {
+                    literal = escaped;
+                    next = i + 2;
+                }
+            } else if (c == '[') {
+                next = skipClass(branch, i) + 1;
+            } else if (c == '(') {
+                next = skipGroup(branch, i) + 1;
+            } else if (".^$*+?{}|)\\".indexOf(c) >= 0) {
+                next = c == '{' ? skipQuantifier(branch, i) : i + 1;
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+
+            // quantifier after atom
+            boolean optional = false;
+            boolean repeated = false;
+            if (next < branch.length()) {
+                char quantifier = branch.charAt(next);
+                if (quantifier == '*' || quantifier == '?') {
+                    optional = true;
+                } else if (quantifier == '+') {
+                    repeated = true;
+                } else if (quantifier == '{') {
+                    optional = branch.startsWith("{0", next);
+                    repeated = !optional;
+                }
+                if (optional || repeated) {
+                    next = skipQuantifier(branch, next);
+                }
+            }
+
+            if (literal != null && !optional) {
+                run.append(literal.charValue());
+            }
+            if (literal == null || optional || repeated) {
+                addRun(literals, run);
+            }
+
+            i = next;
+        }
+        addRun(literals, run);
+
+        return literals;
+    }
+
+    private static void addRun(List<String> literals, StringBuilder run) {
+        if (run.toString().getBytes(StandardCharsets.UTF_8).length >= 3) {
+            literals.add(run.toString());
+        }
+        run.setLength(0);
+    }
+
+    /**
+     * @return position after escape starting at start, together with its argument,
+     * like {Upper} of \p{Upper}, digits of \x41 or quoted text of \Q..\E
+     */
+    private static int skipEscape(String regex, int start) {
+
+        int i = start + 2;
+        if (i > regex.length()) {
+            return regex.length();
+        }
+
+        char escaped = regex.charAt(start + 1);
+        switch (escaped) {
+            case 'Q':
+                int end = regex.indexOf("\\E", i);
+                return end < 0 ? regex.length() : end + 2;
+            case 'p':
+            case 'P':
+            case 'N':
+            case 'x':
+                if (i < regex.length() && regex.charAt(i) == '{') {
+                    return skipTo(regex, i, '}');
+                }
+                return escaped == 'x' ? skipDigits(regex, i, 2, 16) : Math.min(i + 1, regex.length());
+            case 'u':
+                return skipDigits(regex, i, 4, 16);
+            case '0':
+                return skipDigits(regex, i, 3, 8);
+            case 'c':
+                return Math.min(i + 1, regex.length());
+            case 'k':
+                return skipTo(regex, i, '>');
+            default:
+                // back reference takes as many digits as there are groups
+                return Character.isDigit(escaped) ? skipDigits(regex, i, Integer.MAX_VALUE, 10) : i;
+        }
+    }
+
+    /**
+     * @return position after quantifier starting at start, together with lazy or possessive suffix
+     */
+    private static int skipQuantifier(String regex, int start) {
+
+        int end = regex.charAt(start) == '{' ? skipTo(regex, start, '}') : start + 1;
+        if (end < regex.length() && (regex.charAt(end) == '?' || regex.charAt(end) == '+')) {
+            end++;
+        }
+
+        return end;
+    }
+
+    private static int skipTo(String regex, int start, char close) {
+        int end = regex.indexOf(close, start);
+        return end < 0 ? regex.length() : end + 1;
+    }
+
+    private static int skipDigits(String regex, int start, int maxDigits, int radix) {
+        int end = start;
+        while (end < regex.length() && end - start < maxDigits && Character.digit(regex.charAt(end), radix) >= 0) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * @return position of ] which closes character class starting at start
+     */
+    private static int skipClass(String regex, int start) {
+
+        int depth = 0;
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i = skipEscape(regex, i) - 1;
+            } else if (c == '[') {
+                depth++;
+                // ] right after [ or [^ is a plain character
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == ']' && --depth == 0) {
+                return i;
+            }
+        }
+
+        return regex.length();
+    }
+
+    /**
+     * @return position of ) which closes group starting at start
+     */
+    private static int skipGroup(String regex, int start) {
+
+        int depth = 0;
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i = skipEscape(regex, i) - 1;
+            } else if (c == '[') {
+                i = skipClass(regex, i);
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+
+        return regex.length();
+    }
+
+    /**
+     * Collects trigrams of files while MyFileSearcher reads them, and writes index file.
+     * Files can be added from several threads at once.
+     * <p>
+     * Trigrams of files which did not change can be taken from the previous index instead,
+     * see loadPrevious and reuse.
+     */
+    static final class Builder {
+
+        private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[4096]);
+
+        private final List<String> paths = new ArrayList<>();
+
+        // slot of each trigram in arrays below
+        private final IntIntHashtable slotOfTrigram = new IntIntHashtable();
+        private int[] trigramOfSlot = new int[1024];
+        private byte[][] postingBytes = new byte[1024][];
+        private int[] postingLength = new int[1024];
+        private int[] postingCount = new int[1024];
+        private int[] lastFileId = new int[1024];
+
+        // trigrams of each file in previous index, by path
+        private Map<String, int[]> previous = Map.of();
+
+        /**
+         * Load previous index file, so trigrams of its files can be reused,
+         * but only if it was built along with the index of scanned files saved at savedAt.
+         * Otherwise the two could disagree on which content of a file is indexed.
+         * Missing, damaged or outdated index leaves nothing to reuse.
+         */
+        void loadPrevious(Path file, long savedAt) {
+            try {
+                // read rather than mapped, some systems can not replace a mapped file, and write replaces it
+                TrigramIndex index = new TrigramIndex(ByteBuffer.wrap(Files.readAllBytes(file)));
+                if (index.stamp == savedAt) {
+                    previous = index.trigramsOfFiles();
+                }
+            } catch (NoSuchFileException e) {
+                // first search, nothing indexed yet
+            } catch (IOException | RuntimeException e) {
+                // damaged index, every file is read again
+            }
+        }
+
+        /**
+         * Add trigrams which file had in previous index, instead of reading it again.
+         *
+         * @return false if previous index does not have the file, so it has to be read
+         */
+        boolean reuse(Path file) {
+
+            String path = file.toAbsolutePath().normalize().toString();
+            int[] trigrams = previous.get(path);
+            if (trigrams == null) {
+                return false;
+            }
+
+            addTrigrams(path, trigrams, trigrams.length);
+            return true;
+        }
+
+        /**
+         * Add distinct trigrams of remaining bytes of content as one file.
+         */
+        void add(Path file, ByteBuffer content) {
+
+            // trigrams are found outside of the lock, only appending is serialized
+            int[] trigrams = SCRATCH.get();
+            int length = content.remaining() - 2;
+            if (trigrams.length < length) {
+                trigrams = new int[Integer.highestOneBit(length) << 1];
+                SCRATCH.set(trigrams);
+            }
+
+            int start = content.position();
+            for (int i = 0; i < length; i++) {
+                trigrams[i] = trigram(content.get(start + i), content.get(start + i + 1), content.get(start + i + 2));
+            }
+            if (length > 0) {
+                Arrays.sort(trigrams, 0, length);
+            }
+
+            int distinct = 0;
+            for (int i = 0; i < length; i++) {
+                if (distinct == 0 || trigrams[distinct - 1] != trigrams[i]) {
+                    trigrams[distinct++] = trigrams[i];
+                }
+            }
+
+            addTrigrams(file.toAbsolutePath().normalize().toString(), trigrams, distinct);
+        }
+
+        private synchronized void addTrigrams(String path, int[] trigrams, int count) {
+
+            int fileId = paths.size();
+            paths.add(path);
+
+            for (int i = 0; i < count; i++) {
+                append(trigrams[i], fileId);
+            }
+        }
+
+        private void append(int trigram, int fileId) {
+
+            int slot = slotOfTrigram.getOrDefault(trigram, -1);
+            if (slot < 0) {
+                slot = slotOfTrigram.size();
+                slotOfTrigram.put(trigram, slot);
+
+                if (slot == trigramOfSlot.length) {
+                    int capacity = slot * 2;
+                    trigramOfSlot = Arrays.copyOf(trigramOfSlot, capacity);
+                    postingBytes = Arrays.copyOf(postingBytes, capacity);
+                    postingLength = Arrays.copyOf(postingLength, capacity);
+                    postingCount = Arrays.copyOf(postingCount, capacity);
+                    lastFileId = Arrays.copyOf(lastFileId, capacity);
+                }
+                trigramOfSlot[slot] = trigram;
+                postingBytes[slot] = new byte[4];
+            }
+
+            // file numbers only grow, so differences are small and fit in a byte or two
+            int delta = fileId - lastFileId[slot];
+            lastFileId[slot] = fileId;
+            postingCount[slot]++;
+
+            if (postingLength[slot] + 5 > postingBytes[slot].length) {
+                postingBytes[slot] = Arrays.copyOf(postingBytes[slot], postingBytes[slot].length * 2);
+            }
+            while ((delta & ~0x7f) != 0) {
+                postingBytes[slot][postingLength[slot]++] = (byte) ((delta & 0x7f) | 0x80);
+                delta >>>= 7;
+            }
+            postingBytes[slot][postingLength[slot]++] = (byte) delta;
+        }
+
+        /**
+         * Write index to a temporary file first, force it to disk and then move it in place,
+         * so a crash never leaves a half written index behind.
+         *
+         * @param stamp start of search of the index of scanned files built along, see loadPrevious
+         */
+        synchronized void write(Path file, long stamp) throws IOException {
+
+            int trigramCount = slotOfTrigram.size();
+            long[] sorted = new long[trigramCount];
+            for (int slot = 0; slot < trigramCount; slot++) {
+                sorted[slot] = (long) trigramOfSlot[slot] << 32 | slot;
+            }
+            Arrays.sort(sorted);
+
+            List<byte[]> pathBytes = new ArrayList<>();
+            long pathsOffset = HEADER_BYTES + (long) trigramCount * TRIGRAM_BYTES;
+            long position = pathsOffset + 4L * paths.size();
+            List<Long> pathOffsets = new ArrayList<>();
+            for (String path : paths) {
+                byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+                pathBytes.add(bytes);
+                pathOffsets.add(position);
+                position += 4 + bytes.length;
+            }
+
+            long postingsOffset = position;
+            for (int slot = 0; slot < trigramCount; slot++) {
+                position += postingLength[slot];
+            }
+            if (position > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Trigram index is larger than 2 GB");
+            }
+
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Channels.newOutputStream(channel), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(paths.size());
+                out.writeInt(trigramCount);
+                out.writeInt((int) pathsOffset);
+                out.writeInt((int) postingsOffset);
+                out.writeLong(stamp);
+
+                long postingOffset = postingsOffset;
+                for (long packed : sorted) {
+                    int slot = (int) packed;
+                    out.writeInt(trigramOfSlot[slot]);
+                    out.writeInt((int) postingOffset);
+                    out.writeInt(postingCount[slot]);
+                    postingOffset += postingLength[slot];
+                }
+
+                for (long pathOffset : pathOffsets) {
+                    out.writeInt((int) pathOffset);
+                }
+                for (byte[] bytes : pathBytes) {
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+                for (long packed : sorted) {
+                    int slot = (int) packed;
+                    out.write(postingBytes[slot], 0, postingLength[slot]);
+                }
+
+                // data must be on disk before rename is, or power loss can leave an empty index
+                out.flush();
+                channel.force(true);
+
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // left only if writing failed
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+    }
+
+}
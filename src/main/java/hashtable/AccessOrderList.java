@@ -0,0 +1,128 @@
+package hashtable;
+
+/**
+ * Doubly linked list of keys in access order, used by eviction policies.
+ * <p>
+ * Head is the least recently used key, tail is the most recently used one.
+ * Every operation is O(1) given the node.
+ *
+ * @param <K> key type
+ * @author sskender
+ */
+class AccessOrderList<K> {
+
+
+    private Node<K> head;
+    private Node<K> tail;
+    private long weight;
+
+
+    Node<K> head() {
+        return this.head;
+    }
+
+
+    long weight() {
+        return this.weight;
+    }
+
+
+    boolean isEmpty() {
+        return this.head == null;
+    }
+
+
+    /**
+     * Append node at the tail.
+     *
+     * @param node node which is not in any list
+     */
+    void addLast(Node<K> node) {
+        node.list = this;
+        node.prev = this.tail;
+        node.next = null;
+
+        if (this.tail == null) {
+            this.head = node;
+        } else {
+            this.tail.next = node;
+        }
+        this.tail = node;
+        this.weight += node.weight;
+    }
+
+
+    /**
+     * Unlink node from this list.
+     *
+     * @param node node in this list
+     */
+    void remove(Node<K> node) {
+        if (node.prev == null) {
+            this.head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            this.tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+
+        node.list = null;
+        node.prev = null;
+        node.next = null;
+        this.weight -= node.weight;
+    }
+
+
+    /**
+     * Move node to the tail, as most recently used.
+     *
+     * @param node node in this list
+     */
+    void moveToLast(Node<K> node) {
+        if (node != this.tail) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+
+    /**
+     * Change weight of node in this list.
+     *
+     * @param node   node in this list
+     * @param weight new weight
+     */
+    void setWeight(Node<K> node, int weight) {
+        this.weight += weight - node.weight;
+        node.weight = weight;
+    }
+
+
+    /**
+     * One key in the list.
+     *
+     * @param <K> key type
+     */
+    static class Node<K> {
+
+
+        final K key;
+        int weight;
+        AccessOrderList<K> list;
+        Node<K> prev;
+        Node<K> next;
+
+
+        Node(K key, int weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+
+
+    }
+
+
+}
@@ -0,0 +1,352 @@
+package hashtable;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Cache with bounded total weight, built on ConcurrentSimpleHashtable.
+ * <p>
+ * Pairs are stored in a ConcurrentSimpleHashtable, so reads never lock.
+ * Reads are recorded in a small ring buffer which is handed to the eviction policy
+ * later, by whichever thread gets the policy lock first.
+ * When the buffer is full, reads are simply not recorded.
+ * Writes take the policy lock, and evict until total weight fits again.
+ * <p>
+ * Optionally, pairs expire after a fixed time since they were written or last read.
+ * Expired pairs are never returned, and are removed when they are next read
+ * or when the policy picks them for eviction.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author sskender
+ */
+public class BoundedCache<K, V> {
+
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    private final ConcurrentSimpleHashtable<K, CacheEntry<K, V>> table = new ConcurrentSimpleHashtable<>();
+
+    private final long maximumWeight;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+
+    /* guards policy and totalWeight */
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final EvictionPolicy<K> policy;
+    private long totalWeight;
+
+    private final AtomicReferenceArray<CacheEntry<K, V>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readsRecorded = new AtomicLong();
+    private volatile long readsDrained;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+
+    /**
+     * Create cache which holds at most maximumSize pairs and never expires them.
+     *
+     * @param maximumSize maximum number of pairs
+     * @param policy      eviction policy
+     */
+    public BoundedCache(long maximumSize, EvictionPolicy<K> policy) {
+        this(maximumSize, (k, v) -> 1, policy, null, null);
+    }
+
+
+    /**
+     * Create cache with custom weight of pairs and optional expiration.
+     *
+     * @param maximumWeight     maximum total weight of pairs
+     * @param weigher           weight of one pair, never negative
+     * @param policy            eviction policy
+     * @param expireAfterWrite  time pair lives after it was written, or null
+     * @param expireAfterAccess time pair lives after it was last read or written, or null
+     */
+    public BoundedCache(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher, EvictionPolicy<K> policy,
+                        Duration expireAfterWrite, Duration expireAfterAccess) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight can not be less than zero");
+        }
+        if (weigher == null || policy == null) {
+            throw new IllegalArgumentException("Weigher and policy are required");
+        }
+
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.policy = policy;
+        this.expireAfterWriteNanos = expireAfterWrite == null ? Long.MAX_VALUE : expireAfterWrite.toNanos();
+        this.expireAfterAccessNanos = expireAfterAccess == null ? Long.MAX_VALUE : expireAfterAccess.toNanos();
+    }
+
+
+    private boolean isExpired(CacheEntry<K, V> entry, long now) {
+        return now - entry.writeTime >= this.expireAfterWriteNanos
+                || now - entry.accessTime >= this.expireAfterAccessNanos;
+    }
+
+
+    /**
+     * Return value if key is cached and not expired,
+     * otherwise return null.
+     * <p>
+     * Never takes the policy lock, unless it finds an expired pair.
+     *
+     * @param key key
+     * @return value
+     */
+    public V get(K key) {
+        CacheEntry<K, V> entry = this.table.get(key);
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (isExpired(entry, now)) {
+            this.misses.increment();
+            removeEntry(entry);
+            return null;
+        }
+
+        if (this.expireAfterAccessNanos != Long.MAX_VALUE) {
+            entry.accessTime = now;
+        }
+        recordRead(entry);
+        this.hits.increment();
+        return entry.value;
+    }
+
+
+    /**
+     * Return cached value,
+     * or load it, cache it and return it if key is missing.
+     * <p>
+     * Two threads which miss the same key at the same time may both call the loader.
+     *
+     * @param key    key
+     * @param loader function which loads value of key
+     * @return value, or null if loader returned null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null && key != null) {
+            value = loader.apply(key);
+            put(key, value);
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Store (key, value) pair in cache, evicting other pairs if needed.
+     * Null keys and values are ignored.
+     *
+     * @param key   key
+     * @param value value
+     */
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            return;
+        }
+
+        int weight = this.weigher.applyAsInt(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight can not be less than zero");
+        }
+
+        CacheEntry<K, V> entry = new CacheEntry<>(key, value, weight, System.nanoTime());
+
+        this.policyLock.lock();
+        try {
+            drainReads();
+
+            CacheEntry<K, V> old = this.table.get(key);
+            this.table.put(key, entry);
+
+            if (old == null) {
+                this.policy.onInsert(key, weight);
+            } else {
+                this.totalWeight -= old.weight;
+                this.policy.onUpdate(key, weight);
+            }
+            this.totalWeight += weight;
+
+            evictIfNeeded();
+        } finally {
+            this.policyLock.unlock();
+        }
+    }
+
+
+    /**
+     * Remove pair from cache.
+     *
+     * @param key key
+     */
+    public void invalidate(K key) {
+        CacheEntry<K, V> entry = this.table.get(key);
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
+
+    /**
+     * Remove entry if it is still the one stored for its key.
+     */
+    private void removeEntry(CacheEntry<K, V> entry) {
+        this.policyLock.lock();
+        try {
+            if (this.table.get(entry.key) == entry) {
+                this.table.remove(entry.key);
+                this.totalWeight -= entry.weight;
+                this.policy.onRemove(entry.key);
+            }
+        } finally {
+            this.policyLock.unlock();
+        }
+    }
+
+
+    private void evictIfNeeded() {
+        while (this.totalWeight > this.maximumWeight) {
+            K victim = this.policy.evict();
+            if (victim == null) {
+                return;
+            }
+
+            CacheEntry<K, V> entry = this.table.get(victim);
+            if (entry != null) {
+                this.table.remove(victim);
+                this.totalWeight -= entry.weight;
+                this.evictions.increment();
+            }
+        }
+    }
+
+
+    /**
+     * Put read entry into ring buffer, drain buffer if it is filling up
+     * and nobody else is holding the policy lock.
+     * Entry overwritten before it was drained is simply lost.
+     */
+    private void recordRead(CacheEntry<K, V> entry) {
+        long recorded = this.readsRecorded.getAndIncrement();
+        this.readBuffer.lazySet((int) (recorded & (READ_BUFFER_SIZE - 1)), entry);
+
+        if (recorded - this.readsDrained >= READ_DRAIN_THRESHOLD && this.policyLock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                this.policyLock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Hand buffered reads to policy, must be called with policy lock held.
+     */
+    private void drainReads() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            CacheEntry<K, V> entry = this.readBuffer.getAndSet(i, null);
+            if (entry != null && this.table.get(entry.key) == entry) {
+                this.policy.onAccess(entry.key);
+            }
+        }
+        this.readsDrained = this.readsRecorded.get();
+    }
+
+
+    /**
+     * Return number of pairs in cache, including expired ones not yet removed.
+     *
+     * @return cache size
+     */
+    public int size() {
+        return this.table.size();
+    }
+
+
+    /**
+     * Return total weight of pairs in cache.
+     *
+     * @return total weight
+     */
+    public long weightedSize() {
+        this.policyLock.lock();
+        try {
+            return this.totalWeight;
+        } finally {
+            this.policyLock.unlock();
+        }
+    }
+
+
+    public long hitCount() {
+        return this.hits.sum();
+    }
+
+
+    public long missCount() {
+        return this.misses.sum();
+    }
+
+
+    public long evictionCount() {
+        return this.evictions.sum();
+    }
+
+
+    /**
+     * Return ratio of reads which found a value, or 1 if there were no reads.
+     *
+     * @return hit ratio
+     */
+    public double hitRate() {
+        long hitCount = hitCount();
+        long total = hitCount + missCount();
+        return total == 0 ? 1.0 : (double) hitCount / total;
+    }
+
+
+    /**
+     * One cached pair with its bookkeeping.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     */
+    private static final class CacheEntry<K, V> {
+
+
+        private final K key;
+        private final V value;
+        private final int weight;
+        private final long writeTime;
+        private volatile long accessTime;
+
+
+        CacheEntry(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+
+
+    }
+
+
+}
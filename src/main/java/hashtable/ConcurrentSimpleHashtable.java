@@ -0,0 +1,665 @@
+package hashtable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Thread safe hash table implementation.
+ * <p>
+ * Same layout as SimpleHashtable (array of slots, each slot is a chain of entries),
+ * but slots are kept in an AtomicReferenceArray:
+ * <ul>
+ * <li>reads never lock, they only follow volatile references</li>
+ * <li>empty slot is filled with compare-and-set</li>
+ * <li>any other write locks only the first entry of its slot</li>
+ * <li>size is counted with LongAdder, so writers do not fight over one counter</li>
+ * </ul>
+ * <p>
+ * When table grows, every thread which runs into a moved slot helps moving the rest,
+ * in chunks of TRANSFER_STRIDE slots.
+ * Moved slot is replaced by a forwarding entry which points readers to the new table,
+ * so reads and writes go on during the resize.
+ * <p>
+ * Functions passed to compute methods are called while slot is locked,
+ * they should be short and must not modify this table.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author sskender
+ */
+public class ConcurrentSimpleHashtable<K, V> {
+
+
+    private static final int DEFAULT_SIZE = 16;
+    private static final int MAXIMUM_SIZE = 1 << 30;
+    private static final double LOAD_FACTOR = 0.75;
+    private static final int TRANSFER_STRIDE = 16;
+
+    /* hash of forwarding entry */
+    private static final int MOVED = -1;
+    /* hash of placeholder entry which locks an empty slot during compute */
+    private static final int RESERVED = -2;
+
+    private volatile AtomicReferenceArray<TableEntry<K, V>> table;
+    private final AtomicReference<Resize<K, V>> resize = new AtomicReference<>();
+    private final LongAdder size = new LongAdder();
+
+
+    /**
+     * If custom size not specified, table of size DEFAULT_SIZE is be created.
+     */
+    public ConcurrentSimpleHashtable() {
+        this(ConcurrentSimpleHashtable.DEFAULT_SIZE);
+    }
+
+
+    /**
+     * Create table of custom number of slots.
+     *
+     * @param numberOfSlots wanted table size
+     */
+    public ConcurrentSimpleHashtable(int numberOfSlots) {
+        if (numberOfSlots < 0) {
+            throw new IllegalArgumentException("Size can not be less than zero");
+        }
+
+        int n = 2;
+        while (n < numberOfSlots && n < MAXIMUM_SIZE) {
+            n *= 2;
+        }
+        this.table = new AtomicReferenceArray<>(n);
+    }
+
+
+    /**
+     * Spread high bits of hashcode into low bits,
+     * result is never negative so it can not be mistaken for MOVED or RESERVED.
+     *
+     * @param key key
+     * @return hash
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+
+    /**
+     * Return value if key exists in table.
+     * Returns null if:
+     * key does not exist in table
+     * key is null
+     * <p>
+     * Never locks.
+     *
+     * @param key key
+     * @return value
+     */
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        int hash = hash(key);
+        AtomicReferenceArray<TableEntry<K, V>> tab = this.table;
+
+        while (true) {
+            TableEntry<K, V> temp = tab.get(hash & (tab.length() - 1));
+
+            if (temp != null && temp.hash == MOVED) {
+                tab = ((ForwardingEntry<K, V>) temp).nextTable;
+                continue;
+            }
+
+            while (temp != null) {
+                if (temp.hash == hash && key.equals(temp.key)) {
+                    return temp.value;
+                }
+                temp = temp.next;
+            }
+
+            return null;
+        }
+    }
+
+
+    /**
+     * Return true if key is stored in table,
+     * otherwise return false.
+     *
+     * @param key key
+     * @return true if key is found in table
+     */
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+
+    /**
+     * Store (key, value) pair in table.
+     * <p>
+     * If key already exists in table then update its value.
+     * Null keys and values are ignored.
+     *
+     * @param key   key
+     * @param value value
+     */
+    public void put(K key, V value) {
+        putValue(key, value, false);
+    }
+
+
+    /**
+     * Store (key, value) pair only if key is not already in table.
+     *
+     * @param key   key
+     * @param value value
+     * @return value which was already stored, or null if pair was added
+     */
+    public V putIfAbsent(K key, V value) {
+        return putValue(key, value, true);
+    }
+
+
+    private V putValue(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null) {
+            return null;
+        }
+
+        int hash = hash(key);
+        AtomicReferenceArray<TableEntry<K, V>> tab = this.table;
+
+        while (true) {
+            int slotIndex = hash & (tab.length() - 1);
+            TableEntry<K, V> first = tab.get(slotIndex);
+
+            if (first == null) {
+                /* no overflow, no lock */
+                if (tab.compareAndSet(slotIndex, null, new TableEntry<>(hash, key, value))) {
+                    break;
+                }
+            } else if (first.hash == MOVED) {
+                tab = helpTransfer(tab, (ForwardingEntry<K, V>) first);
+            } else {
+                V oldValue = null;
+                boolean added = false;
+
+                synchronized (first) {
+                    if (tab.get(slotIndex) != first) {
+                        continue;
+                    }
+
+                    TableEntry<K, V> temp = first;
+                    while (true) {
+                        if (temp.hash == hash && key.equals(temp.key)) {
+                            oldValue = temp.value;
+                            if (!onlyIfAbsent) {
+                                temp.value = value;
+                            }
+                            break;
+                        }
+                        if (temp.next == null) {
+                            temp.next = new TableEntry<>(hash, key, value);
+                            added = true;
+                            break;
+                        }
+                        temp = temp.next;
+                    }
+                }
+
+                if (!added) {
+                    return oldValue;
+                }
+                break;
+            }
+        }
+
+        addCount(tab);
+        return null;
+    }
+
+
+    /**
+     * Return value stored for key,
+     * or compute it, store it and return it if key is not in table.
+     * <p>
+     * Function is called at most once, and only if key is missing.
+     * If function returns null nothing is stored.
+     *
+     * @param key     key
+     * @param mapping function which computes value from key
+     * @return current value
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mapping) {
+        V value = get(key);
+        if (value != null || key == null) {
+            return value;
+        }
+
+        return compute(key, (k, oldValue) -> oldValue != null ? oldValue : mapping.apply(k));
+    }
+
+
+    /**
+     * Store value if key is not in table,
+     * otherwise store result of remapping old and given value.
+     * <p>
+     * If remapping returns null, pair is removed.
+     *
+     * @param key       key
+     * @param value     value to store or to merge
+     * @param remapping function which merges old and given value
+     * @return new value, or null if pair was removed
+     */
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        if (value == null) {
+            return null;
+        }
+
+        return compute(key, (k, oldValue) -> oldValue == null ? value : remapping.apply(oldValue, value));
+    }
+
+
+    /**
+     * Atomically replace value of key with result of remapping.
+     * <p>
+     * Remapping gets null as old value if key is not in table.
+     * If remapping returns null, pair is removed (or not added).
+     *
+     * @param key       key
+     * @param remapping function which computes new value
+     * @return new value, or null if there is none
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        if (key == null) {
+            return null;
+        }
+
+        int hash = hash(key);
+        AtomicReferenceArray<TableEntry<K, V>> tab = this.table;
+
+        while (true) {
+            int slotIndex = hash & (tab.length() - 1);
+            TableEntry<K, V> first = tab.get(slotIndex);
+
+            if (first == null) {
+                /* lock empty slot with placeholder while function runs */
+                TableEntry<K, V> reservation = new TableEntry<>(RESERVED, null, null);
+                synchronized (reservation) {
+                    if (tab.compareAndSet(slotIndex, null, reservation)) {
+                        V value = null;
+                        try {
+                            value = remapping.apply(key, null);
+                        } finally {
+                            tab.set(slotIndex, value == null ? null : new TableEntry<>(hash, key, value));
+                        }
+
+                        if (value != null) {
+                            addCount(tab);
+                        }
+                        return value;
+                    }
+                }
+            } else if (first.hash == MOVED) {
+                tab = helpTransfer(tab, (ForwardingEntry<K, V>) first);
+            } else {
+                V value;
+                int delta = 0;
+
+                synchronized (first) {
+                    if (tab.get(slotIndex) != first) {
+                        continue;
+                    }
+                    if (first.hash == RESERVED) {
+                        throw new IllegalStateException("Recursive update");
+                    }
+
+                    TableEntry<K, V> previous = null;
+                    TableEntry<K, V> temp = first;
+                    while (temp != null && !(temp.hash == hash && key.equals(temp.key))) {
+                        previous = temp;
+                        temp = temp.next;
+                    }
+
+                    value = remapping.apply(key, temp == null ? null : temp.value);
+
+                    if (temp != null && value != null) {
+                        temp.value = value;
+                    } else if (temp != null) {
+                        if (previous == null) {
+                            tab.set(slotIndex, temp.next);
+                        } else {
+                            previous.next = temp.next;
+                        }
+                        delta = -1;
+                    } else if (value != null) {
+                        previous.next = new TableEntry<>(hash, key, value);
+                        delta = 1;
+                    }
+                }
+
+                if (delta > 0) {
+                    addCount(tab);
+                } else if (delta < 0) {
+                    this.size.decrement();
+                }
+                return value;
+            }
+        }
+    }
+
+
+    /**
+     * Remove (key, value) pair from table.
+     *
+     * @param key key
+     */
+    public void remove(K key) {
+        compute(key, (k, oldValue) -> null);
+    }
+
+
+    /**
+     * Return total number of (key, value) pairs stored in table.
+     * <p>
+     * While other threads are writing, this is only an estimate.
+     *
+     * @return table size
+     */
+    public int size() {
+        long sum = this.size.sum();
+        return sum < 0 ? 0 : (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Return true if table is empty,
+     * otherwise return false.
+     *
+     * @return true if table is empty
+     */
+    public boolean isEmpty() {
+        return this.size.sum() <= 0;
+    }
+
+
+    /**
+     * Return true if value is stored in table,
+     * otherwise return false.
+     * <p>
+     * Never locks, pairs written during the scan may or may not be seen.
+     *
+     * @param value value
+     * @return true if value is found in table
+     */
+    public boolean containsValue(V value) {
+        return value != null && anyEntry(e -> value.equals(e.value));
+    }
+
+
+    /**
+     * Test every entry against predicate, stop at first match.
+     * Moved slots are followed into the new table.
+     */
+    private boolean anyEntry(Predicate<TableEntry<K, V>> predicate) {
+        AtomicReferenceArray<TableEntry<K, V>> tab = this.table;
+
+        for (int i = 0; i < tab.length(); i++) {
+            if (anyEntry(tab, i, predicate)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    private boolean anyEntry(AtomicReferenceArray<TableEntry<K, V>> tab, int slotIndex,
+                             Predicate<TableEntry<K, V>> predicate) {
+        TableEntry<K, V> temp = tab.get(slotIndex);
+
+        if (temp != null && temp.hash == MOVED) {
+            /* slot i of table of size n was split into slots i and i + n */
+            AtomicReferenceArray<TableEntry<K, V>> nextTable = ((ForwardingEntry<K, V>) temp).nextTable;
+            return anyEntry(nextTable, slotIndex, predicate)
+                    || anyEntry(nextTable, slotIndex + tab.length(), predicate);
+        }
+
+        while (temp != null) {
+            if (temp.hash >= 0 && predicate.test(temp)) {
+                return true;
+            }
+            temp = temp.next;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Count newly added pair, start or help resize if table is too full.
+     *
+     * @param tab table pair was added to
+     */
+    private void addCount(AtomicReferenceArray<TableEntry<K, V>> tab) {
+        this.size.increment();
+
+        if (this.size.sum() > LOAD_FACTOR * tab.length() && tab.length() < MAXIMUM_SIZE) {
+            Resize<K, V> current = this.resize.get();
+
+            if (current == null && tab == this.table) {
+                Resize<K, V> started = new Resize<>(tab);
+                current = this.resize.compareAndSet(null, started) ? started : this.resize.get();
+            }
+
+            if (current != null && current.oldTable == tab) {
+                transfer(current);
+            }
+        }
+    }
+
+
+    /**
+     * Help with resize which moved given slot, then return table to continue in.
+     */
+    private AtomicReferenceArray<TableEntry<K, V>> helpTransfer(AtomicReferenceArray<TableEntry<K, V>> tab,
+                                                                ForwardingEntry<K, V> forwarding) {
+        Resize<K, V> current = this.resize.get();
+        if (current != null && current.oldTable == tab) {
+            transfer(current);
+        }
+
+        return forwarding.nextTable;
+    }
+
+
+    /**
+     * Claim chunks of old table and move them until nothing is left.
+     * Thread which moves the last chunk publishes the new table.
+     */
+    private void transfer(Resize<K, V> current) {
+        int n = current.oldTable.length();
+
+        while (true) {
+            int start = current.transferIndex.getAndAdd(TRANSFER_STRIDE);
+            if (start >= n) {
+                return;
+            }
+
+            int end = Math.min(start + TRANSFER_STRIDE, n);
+            for (int i = start; i < end; i++) {
+                transferSlot(current, i);
+            }
+
+            if (current.transferred.addAndGet(end - start) == n) {
+                /* resize started on a table which another resize already replaced */
+                if (this.table == current.oldTable) {
+                    this.table = current.nextTable;
+                }
+                this.resize.compareAndSet(current, null);
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Copy chain of one old slot into slots i and i + n of new table,
+     * then replace old slot with forwarding entry.
+     * <p>
+     * Entries are copied, not relinked, so readers still walking the old chain
+     * are not affected.
+     */
+    private void transferSlot(Resize<K, V> current, int slotIndex) {
+        AtomicReferenceArray<TableEntry<K, V>> oldTable = current.oldTable;
+        int n = oldTable.length();
+
+        while (true) {
+            TableEntry<K, V> first = oldTable.get(slotIndex);
+
+            if (first == null) {
+                if (oldTable.compareAndSet(slotIndex, null, current.forwarding)) {
+                    return;
+                }
+                continue;
+            }
+            if (first.hash == MOVED) {
+                return;
+            }
+
+            synchronized (first) {
+                if (oldTable.get(slotIndex) != first) {
+                    continue;
+                }
+
+                TableEntry<K, V> low = null;
+                TableEntry<K, V> high = null;
+                for (TableEntry<K, V> temp = first; temp != null; temp = temp.next) {
+                    if ((temp.hash & n) == 0) {
+                        low = new TableEntry<>(temp.hash, temp.key, temp.value, low);
+                    } else {
+                        high = new TableEntry<>(temp.hash, temp.key, temp.value, high);
+                    }
+                }
+
+                current.nextTable.set(slotIndex, low);
+                current.nextTable.set(slotIndex + n, high);
+                oldTable.set(slotIndex, current.forwarding);
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Return nice visual representation of the table.
+     *
+     * @return whole table in one String
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        anyEntry(e -> {
+            sb.append("(")
+                    .append(e.key)
+                    .append(" : ")
+                    .append(e.value)
+                    .append(")\n");
+            return false;
+        });
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Helper class, represents one entry in a slot chain.
+     * <p>
+     * Value and next are volatile so readers see writes
+     * made by other threads while holding the slot lock.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     */
+    private static class TableEntry<K, V> {
+
+
+        private final int hash;
+        private final K key;
+        private volatile V value;
+        private volatile TableEntry<K, V> next;
+
+
+        TableEntry(int hash, K key, V value) {
+            this(hash, key, value, null);
+        }
+
+
+        TableEntry(int hash, K key, V value, TableEntry<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+
+    }
+
+
+    /**
+     * Placed in old table instead of a slot which was already moved.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     */
+    private static final class ForwardingEntry<K, V> extends TableEntry<K, V> {
+
+
+        private final AtomicReferenceArray<TableEntry<K, V>> nextTable;
+
+
+        ForwardingEntry(AtomicReferenceArray<TableEntry<K, V>> nextTable) {
+            super(MOVED, null, null);
+            this.nextTable = nextTable;
+        }
+
+
+    }
+
+
+    /**
+     * State of one resize, shared by all threads which help with it.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     */
+    private static final class Resize<K, V> {
+
+
+        private final AtomicReferenceArray<TableEntry<K, V>> oldTable;
+        private final AtomicReferenceArray<TableEntry<K, V>> nextTable;
+        private final ForwardingEntry<K, V> forwarding;
+
+        /* next slot to be claimed */
+        private final AtomicInteger transferIndex = new AtomicInteger();
+        /* number of slots already moved */
+        private final AtomicInteger transferred = new AtomicInteger();
+
+
+        Resize(AtomicReferenceArray<TableEntry<K, V>> oldTable) {
+            this.oldTable = oldTable;
+            this.nextTable = new AtomicReferenceArray<>(oldTable.length() * 2);
+            this.forwarding = new ForwardingEntry<>(this.nextTable);
+        }
+
+
+    }
+
+
+}
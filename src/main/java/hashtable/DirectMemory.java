@@ -0,0 +1,62 @@
+package hashtable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees memory of direct and memory mapped buffers right away,
+ * instead of waiting for garbage collector to collect them.
+ *
+ * @author sskender
+ */
+final class DirectMemory {
+
+
+    /* Unsafe.invokeCleaner frees direct buffer memory immediately */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            /* not available, memory is freed by garbage collector */
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+
+    private DirectMemory() {
+    }
+
+
+    /**
+     * Free memory of direct buffer.
+     * If that is not possible memory is freed once buffer is garbage collected.
+     * <p>
+     * Buffer, and any view of it, must not be used afterwards.
+     *
+     * @param buffer direct buffer which is not used anymore
+     */
+    static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || buffer == null || !buffer.isDirect()) {
+            return;
+        }
+
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            /* leave it to garbage collector */
+        }
+    }
+
+
+}
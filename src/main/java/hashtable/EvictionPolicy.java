@@ -0,0 +1,52 @@
+package hashtable;
+
+/**
+ * Decides which key a bounded cache should drop when it is full.
+ * <p>
+ * Cache reports every change and access to the policy,
+ * always from one thread at a time, so policies need no synchronization.
+ * Reads may be reported late, or not at all when the cache is very busy.
+ *
+ * @param <K> key type
+ * @author sskender
+ */
+public interface EvictionPolicy<K> {
+
+    /**
+     * New key was added to cache.
+     *
+     * @param key    key
+     * @param weight weight of the pair
+     */
+    void onInsert(K key, int weight);
+
+    /**
+     * Value of key which is already in cache was replaced.
+     *
+     * @param key    key
+     * @param weight weight of the new pair
+     */
+    void onUpdate(K key, int weight);
+
+    /**
+     * Key was read from cache.
+     *
+     * @param key key
+     */
+    void onAccess(K key);
+
+    /**
+     * Key was removed from cache for any reason other than eviction.
+     *
+     * @param key key
+     */
+    void onRemove(K key);
+
+    /**
+     * Pick key which should leave the cache and forget about it.
+     *
+     * @return evicted key, or null if policy holds no keys
+     */
+    K evict();
+
+}
@@ -0,0 +1,414 @@
+package hashtable;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Immutable hash table built once from another table, see SimpleHashtable.freeze().
+ * <p>
+ * Keys are placed with a minimal perfect hash (hash and displace):
+ * keys are first split into small buckets, then every bucket gets its own seed
+ * which sends all of its keys to free slots.
+ * Lookup computes bucket, reads its seed and lands directly on the one slot
+ * which can hold the key, so there are no chains and no probing.
+ * There is exactly one slot per distinct hash, so no space is wasted either.
+ * <p>
+ * Distinct keys with equal hashCode() can not be told apart by any hash function,
+ * such keys share one slot and are compared one by one.
+ * <p>
+ * All fields are final and arrays are never modified after construction,
+ * so table can be shared between threads without any synchronization.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author sskender
+ */
+public final class FrozenHashtable<K, V> {
+
+
+    /* average number of distinct hashes per bucket */
+    private static final int BUCKET_SIZE = 3;
+
+    /* seeds tried for one bucket before starting again with more buckets */
+    private static final int MAX_SEED = 1 << 16;
+
+    /* seed of bucket with no keys */
+    private static final int UNUSED = 0;
+
+    /* seed > 0 is displacement, seed < 0 is -(slot + 1) of bucket with one key */
+    private final int[] seeds;
+
+    /* hash stored in each slot, compared before keys */
+    private final int[] hashes;
+
+    /* keys of slot i are at offsets[i] until offsets[i + 1] */
+    private final int[] offsets;
+    private final Object[] keys;
+    private final Object[] values;
+
+
+    /**
+     * Build table from pairs of another table.
+     *
+     * @param size    number of pairs
+     * @param forEach calls its argument for every pair, like table::forEach
+     */
+    FrozenHashtable(int size, Consumer<BiConsumer<K, V>> forEach) {
+        Object[] pairKeys = new Object[size];
+        Object[] pairValues = new Object[size];
+        int[] pairHashes = new int[size];
+        int[] count = {0};
+
+        forEach.accept((key, value) -> {
+            if (count[0] == size) {
+                throw new IllegalArgumentException("Table has more pairs than given size");
+            }
+            pairKeys[count[0]] = key;
+            pairValues[count[0]] = value;
+            pairHashes[count[0]] = key.hashCode();
+            count[0]++;
+        });
+
+        /* sort pairs by hash, so pairs with equal hash end up next to each other */
+        long[] sorted = new long[count[0]];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = (long) pairHashes[i] << 32 | i;
+        }
+        Arrays.sort(sorted);
+        int[] order = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            order[i] = (int) sorted[i];
+        }
+
+        int[] distinct = new int[order.length];
+        int numberOfSlots = 0;
+        for (int i = 0; i < order.length; i++) {
+            int hash = pairHashes[order[i]];
+            if (numberOfSlots == 0 || distinct[numberOfSlots - 1] != hash) {
+                distinct[numberOfSlots++] = hash;
+            }
+        }
+        distinct = Arrays.copyOf(distinct, numberOfSlots);
+
+        int numberOfBuckets = Math.max(1, numberOfSlots / BUCKET_SIZE);
+        int[] slotOfHash;
+        int[] bucketSeeds;
+        while (true) {
+            bucketSeeds = new int[numberOfBuckets];
+            slotOfHash = place(distinct, bucketSeeds);
+            if (slotOfHash != null) {
+                break;
+            }
+            numberOfBuckets *= 2;
+        }
+
+        this.seeds = bucketSeeds;
+        this.hashes = new int[numberOfSlots];
+        this.offsets = new int[numberOfSlots + 1];
+        this.keys = new Object[order.length];
+        this.values = new Object[order.length];
+
+        /* count pairs per slot, then lay out slots one after another */
+        int[] slotOfPair = new int[order.length];
+        for (int i = 0, h = 0; i < order.length; i++) {
+            if (distinct[h] != pairHashes[order[i]]) {
+                h++;
+            }
+            slotOfPair[i] = slotOfHash[h];
+            this.hashes[slotOfHash[h]] = distinct[h];
+            this.offsets[slotOfHash[h] + 1]++;
+        }
+        for (int i = 0; i < numberOfSlots; i++) {
+            this.offsets[i + 1] += this.offsets[i];
+        }
+
+        int[] next = Arrays.copyOf(this.offsets, numberOfSlots);
+        for (int i = 0; i < order.length; i++) {
+            int position = next[slotOfPair[i]]++;
+            this.keys[position] = pairKeys[order[i]];
+            this.values[position] = pairValues[order[i]];
+        }
+    }
+
+
+    /**
+     * Find seed for every bucket, largest buckets first while most slots are still free.
+     *
+     * @param distinct distinct hashes
+     * @param seeds    seed of every bucket, filled in
+     * @return slot of every hash, or null if some bucket has no seed and more buckets are needed
+     */
+    private static int[] place(int[] distinct, int[] seeds) {
+        int numberOfSlots = distinct.length;
+        int numberOfBuckets = seeds.length;
+
+        /* hashes grouped by bucket, same layout as offsets of the table */
+        int[] bucketStart = new int[numberOfBuckets + 1];
+        for (int hash : distinct) {
+            bucketStart[bucket(hash, numberOfBuckets) + 1]++;
+        }
+        for (int i = 0; i < numberOfBuckets; i++) {
+            bucketStart[i + 1] += bucketStart[i];
+        }
+        int[] bucketHashes = new int[numberOfSlots];
+        int[] bucketHashIndexes = new int[numberOfSlots];
+        int[] next = Arrays.copyOf(bucketStart, numberOfBuckets);
+        for (int i = 0; i < numberOfSlots; i++) {
+            int position = next[bucket(distinct[i], numberOfBuckets)]++;
+            bucketHashes[position] = distinct[i];
+            bucketHashIndexes[position] = i;
+        }
+
+        /* largest bucket first */
+        long[] sorted = new long[numberOfBuckets];
+        for (int i = 0; i < numberOfBuckets; i++) {
+            sorted[i] = (long) -(bucketStart[i + 1] - bucketStart[i]) << 32 | i;
+        }
+        Arrays.sort(sorted);
+
+        int[] slotOfHash = new int[numberOfSlots];
+        boolean[] taken = new boolean[numberOfSlots];
+        int[] bucketSlots = new int[numberOfSlots];
+        int freeSlot = 0;
+
+        for (long packed : sorted) {
+            int bucket = (int) packed;
+            int from = bucketStart[bucket];
+            int to = bucketStart[bucket + 1];
+
+            if (to - from == 0) {
+                seeds[bucket] = UNUSED;
+                continue;
+            }
+
+            if (to - from == 1) {
+                /* single hash takes any free slot directly, no seed search */
+                while (taken[freeSlot]) {
+                    freeSlot++;
+                }
+                taken[freeSlot] = true;
+                seeds[bucket] = -(freeSlot + 1);
+                slotOfHash[bucketHashIndexes[from]] = freeSlot;
+                continue;
+            }
+
+            int seed = findSeed(bucketHashes, from, to, taken, bucketSlots);
+            if (seed == UNUSED) {
+                return null;
+            }
+
+            seeds[bucket] = seed;
+            for (int i = from; i < to; i++) {
+                taken[bucketSlots[i - from]] = true;
+                slotOfHash[bucketHashIndexes[i]] = bucketSlots[i - from];
+            }
+        }
+
+        return slotOfHash;
+    }
+
+
+    /**
+     * Find seed which sends all hashes of bucket to distinct free slots.
+     *
+     * @return seed, or UNUSED if there is none below MAX_SEED
+     */
+    private static int findSeed(int[] bucketHashes, int from, int to, boolean[] taken, int[] bucketSlots) {
+        for (int seed = 1; seed < MAX_SEED; seed++) {
+            boolean fits = true;
+
+            for (int i = from; i < to && fits; i++) {
+                int slot = slot(bucketHashes[i], seed, taken.length);
+                if (taken[slot]) {
+                    fits = false;
+                }
+                for (int j = from; j < i && fits; j++) {
+                    if (bucketSlots[j - from] == slot) {
+                        fits = false;
+                    }
+                }
+                bucketSlots[i - from] = slot;
+            }
+
+            if (fits) {
+                return seed;
+            }
+        }
+
+        return UNUSED;
+    }
+
+
+    /**
+     * Scramble hash with seed, so every seed gives unrelated slots.
+     */
+    private static int mix(int hash, int seed) {
+        int h = (hash ^ seed) * 0x9e3779b9;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+
+    /**
+     * Map hash to range [0, n) without division.
+     */
+    private static int reduce(int hash, int n) {
+        return (int) (((hash & 0xffffffffL) * n) >>> 32);
+    }
+
+
+    private static int bucket(int hash, int numberOfBuckets) {
+        return reduce(mix(hash, 0), numberOfBuckets);
+    }
+
+
+    private static int slot(int hash, int seed, int numberOfSlots) {
+        return reduce(mix(hash, seed), numberOfSlots);
+    }
+
+
+    /**
+     * Find position of key in keys array.
+     *
+     * @param key key
+     * @return position or -1 if key is not in table
+     */
+    private int find(Object key) {
+        if (this.hashes.length == 0) {
+            return -1;
+        }
+
+        int hash = key.hashCode();
+        int seed = this.seeds[bucket(hash, this.seeds.length)];
+        if (seed == UNUSED) {
+            return -1;
+        }
+
+        int slot = seed < 0 ? -seed - 1 : slot(hash, seed, this.hashes.length);
+        if (this.hashes[slot] != hash) {
+            return -1;
+        }
+
+        for (int i = this.offsets[slot]; i < this.offsets[slot + 1]; i++) {
+            if (this.keys[i].equals(key)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Return value if key exists in table.
+     * Returns null if:
+     * key does not exist in table
+     * key is null
+     *
+     * @param key key
+     * @return value
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        int position = find(key);
+        return position < 0 ? null : (V) this.values[position];
+    }
+
+
+    /**
+     * Return true if key is stored in table,
+     * otherwise return false.
+     *
+     * @param key key
+     * @return true if key is found in table
+     */
+    public boolean containsKey(K key) {
+        return key != null && find(key) >= 0;
+    }
+
+
+    /**
+     * Return true if value is stored in table,
+     * otherwise return false.
+     *
+     * @param value value
+     * @return true if value is found in table
+     */
+    public boolean containsValue(V value) {
+        for (Object v : this.values) {
+            if (v.equals(value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Return total number of (key, value) pairs stored in table
+     *
+     * @return table size
+     */
+    public int size() {
+        return this.keys.length;
+    }
+
+
+    /**
+     * Return true if table is empty,
+     * otherwise return false.
+     *
+     * @return true if table is empty
+     */
+    public boolean isEmpty() {
+        return this.keys.length == 0;
+    }
+
+
+    /**
+     * Call action for every (key, value) pair in table.
+     *
+     * @param action action
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < this.keys.length; i++) {
+            action.accept((K) this.keys[i], (V) this.values[i]);
+        }
+    }
+
+
+    /**
+     * Return nice visual representation of the table.
+     *
+     * @return whole table in one String
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int slot = 0; slot < this.hashes.length; slot++) {
+            sb.append(slot).append(")");
+            for (int i = this.offsets[slot]; i < this.offsets[slot + 1]; i++) {
+                sb.append(" (")
+                        .append(this.keys[i])
+                        .append(" : ")
+                        .append(this.values[i])
+                        .append(")");
+            }
+            sb.append("\n");
+        }
+
+        return sb.toString();
+    }
+
+
+}
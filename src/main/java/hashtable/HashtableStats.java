@@ -0,0 +1,167 @@
+package hashtable;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of hash table statistics.
+ * <p>
+ * Layout figures (size, slots, chains) are always filled in.
+ * Operation counters (gets, puts, probes, rehashes) are counted only
+ * while statistics are enabled on the table, otherwise they are zero.
+ * A probe is one entry looked at while searching for a key.
+ *
+ * @author sskender
+ */
+public final class HashtableStats implements HashtableStatsMXBean {
+
+
+    private final int size;
+    private final int capacity;
+    private final long[] chainLengthHistogram;
+    private final int maxChainLength;
+    private final int treeBinCount;
+
+    private final long getCount;
+    private final long hitCount;
+    private final long putCount;
+    private final long getProbes;
+    private final long putProbes;
+    private final int maxProbeLength;
+    private final long rehashCount;
+    private final long rehashTimeNanos;
+
+
+    HashtableStats(int size, int capacity, long[] chainLengthHistogram, int maxChainLength, int treeBinCount,
+                   long getCount, long hitCount, long putCount, long getProbes, long putProbes,
+                   int maxProbeLength, long rehashCount, long rehashTimeNanos) {
+        this.size = size;
+        this.capacity = capacity;
+        this.chainLengthHistogram = chainLengthHistogram;
+        this.maxChainLength = maxChainLength;
+        this.treeBinCount = treeBinCount;
+        this.getCount = getCount;
+        this.hitCount = hitCount;
+        this.putCount = putCount;
+        this.getProbes = getProbes;
+        this.putProbes = putProbes;
+        this.maxProbeLength = maxProbeLength;
+        this.rehashCount = rehashCount;
+        this.rehashTimeNanos = rehashTimeNanos;
+    }
+
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    @Override
+    public double getLoadFactor() {
+        return capacity == 0 ? 0 : (double) size / capacity;
+    }
+
+
+    @Override
+    public long[] getChainLengthHistogram() {
+        return chainLengthHistogram.clone();
+    }
+
+
+    @Override
+    public int getMaxChainLength() {
+        return maxChainLength;
+    }
+
+
+    @Override
+    public int getTreeBinCount() {
+        return treeBinCount;
+    }
+
+
+    @Override
+    public long getGetCount() {
+        return getCount;
+    }
+
+
+    @Override
+    public long getHitCount() {
+        return hitCount;
+    }
+
+
+    @Override
+    public long getMissCount() {
+        return getCount - hitCount;
+    }
+
+
+    @Override
+    public long getPutCount() {
+        return putCount;
+    }
+
+
+    @Override
+    public double getAverageProbesPerGet() {
+        return getCount == 0 ? 0 : (double) getProbes / getCount;
+    }
+
+
+    @Override
+    public double getAverageProbesPerPut() {
+        return putCount == 0 ? 0 : (double) putProbes / putCount;
+    }
+
+
+    @Override
+    public int getMaxProbeLength() {
+        return maxProbeLength;
+    }
+
+
+    @Override
+    public long getRehashCount() {
+        return rehashCount;
+    }
+
+
+    @Override
+    public long getRehashTimeNanos() {
+        return rehashTimeNanos;
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("size: ").append(size)
+                .append(", slots: ").append(capacity)
+                .append(", load factor: ").append(String.format("%.3f", getLoadFactor()))
+                .append("\nchain lengths: ").append(Arrays.toString(chainLengthHistogram))
+                .append(", longest: ").append(maxChainLength)
+                .append(", trees: ").append(treeBinCount)
+                .append("\ngets: ").append(getCount)
+                .append(" (hits: ").append(hitCount)
+                .append(", misses: ").append(getMissCount())
+                .append("), probes per get: ").append(String.format("%.2f", getAverageProbesPerGet()))
+                .append("\nputs: ").append(putCount)
+                .append(", probes per put: ").append(String.format("%.2f", getAverageProbesPerPut()))
+                .append(", longest probe: ").append(maxProbeLength)
+                .append("\nrehashes: ").append(rehashCount)
+                .append(", rehash time: ").append(rehashTimeNanos / 1_000_000).append(" ms");
+
+        return sb.toString();
+    }
+
+
+}
@@ -0,0 +1,49 @@
+package hashtable;
+
+/**
+ * Health statistics of a hash table, as seen through JMX.
+ * <p>
+ * Operation counters are zero unless statistics are enabled on the table.
+ *
+ * @author sskender
+ * @see SimpleHashtable#registerMBean(String)
+ */
+public interface HashtableStatsMXBean {
+
+    int getSize();
+
+    int getCapacity();
+
+    double getLoadFactor();
+
+    /**
+     * Number of slots by chain length, index i holds number of slots with i entries.
+     * Last element counts all slots with that many entries or more.
+     *
+     * @return chain length histogram
+     */
+    long[] getChainLengthHistogram();
+
+    int getMaxChainLength();
+
+    int getTreeBinCount();
+
+    long getGetCount();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getPutCount();
+
+    double getAverageProbesPerGet();
+
+    double getAverageProbesPerPut();
+
+    int getMaxProbeLength();
+
+    long getRehashCount();
+
+    long getRehashTimeNanos();
+
+}
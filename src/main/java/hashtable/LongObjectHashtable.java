@@ -0,0 +1,319 @@
+package hashtable;
+
+import java.util.Objects;
+
+/**
+ * Hash table specialized for long keys and object values.
+ * <p>
+ * Keys and values are stored unboxed in two parallel arrays,
+ * collisions are resolved with linear probing.
+ * There are no entry objects, so get, put and getOrDefault never allocate
+ * and never call hashCode() or equals().
+ * <p>
+ * Key 0 marks an empty slot in keys array,
+ * so pair with key 0 is stored separately, outside of the arrays.
+ *
+ * @author sskender
+ */
+public class LongObjectHashtable<V> {
+
+
+    private static final int DEFAULT_SIZE = 16;
+    private static final double LOAD_FACTOR = 0.75;
+
+    /* key of an empty slot */
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private Object[] values;
+
+    private boolean hasZeroKey;
+    private V zeroValue;
+
+    private int mask;
+    private int size;
+    private int threshold;
+
+
+    /**
+     * If custom size not specified, table of size DEFAULT_SIZE is be created.
+     */
+    public LongObjectHashtable() {
+        this(LongObjectHashtable.DEFAULT_SIZE);
+    }
+
+
+    /**
+     * Create table which can hold given number of pairs without growing.
+     *
+     * @param expectedSize expected number of pairs
+     */
+    public LongObjectHashtable(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Size can not be less than zero");
+        }
+
+        int n = 2;
+        while (n * LOAD_FACTOR < expectedSize) {
+            n *= 2;
+        }
+        allocate(n);
+    }
+
+
+    private void allocate(int n) {
+        this.keys = new long[n];
+        this.values = new Object[n];
+        this.mask = n - 1;
+        this.threshold = (int) (n * LOAD_FACTOR);
+    }
+
+
+    /**
+     * Calculate home slot of the key.
+     * Multiplication spreads sequential keys over whole table.
+     *
+     * @param key key
+     * @return slot index in table
+     */
+    private int getSlotIndex(long key) {
+        int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & this.mask;
+    }
+
+
+    /**
+     * Find slot which contains key, key must not be EMPTY.
+     *
+     * @param key key
+     * @return slot index or -1 if key is not in table
+     */
+    private int findSlot(long key) {
+        int slotIndex = getSlotIndex(key);
+
+        while (this.keys[slotIndex] != EMPTY) {
+            if (this.keys[slotIndex] == key) {
+                return slotIndex;
+            }
+            slotIndex = (slotIndex + 1) & this.mask;
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Store (key, value) pair in table.
+     * <p>
+     * If key already exists in table then update its value.
+     *
+     * @param key   key
+     * @param value value
+     */
+    public void put(long key, V value) {
+        if (key == EMPTY) {
+            if (!this.hasZeroKey) {
+                this.hasZeroKey = true;
+                this.size++;
+            }
+            this.zeroValue = value;
+            return;
+        }
+
+        int slotIndex = getSlotIndex(key);
+
+        while (this.keys[slotIndex] != EMPTY) {
+            if (this.keys[slotIndex] == key) {
+                this.values[slotIndex] = value;
+                return;
+            }
+            slotIndex = (slotIndex + 1) & this.mask;
+        }
+
+        this.keys[slotIndex] = key;
+        this.values[slotIndex] = value;
+
+        if (++this.size > this.threshold) {
+            grow();
+        }
+    }
+
+
+    private void grow() {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+
+        allocate(oldKeys.length * 2);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slotIndex = getSlotIndex(oldKeys[i]);
+                while (this.keys[slotIndex] != EMPTY) {
+                    slotIndex = (slotIndex + 1) & this.mask;
+                }
+                this.keys[slotIndex] = oldKeys[i];
+                this.values[slotIndex] = oldValues[i];
+            }
+        }
+    }
+
+
+    /**
+     * Return value stored for key,
+     * or null if key does not exist in table.
+     *
+     * @param key key
+     * @return value
+     */
+    public V get(long key) {
+        return getOrDefault(key, null);
+    }
+
+
+    /**
+     * Return value stored for key,
+     * or defaultValue if key does not exist in table.
+     *
+     * @param key          key
+     * @param defaultValue value returned when key is missing
+     * @return value
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        if (key == EMPTY) {
+            return this.hasZeroKey ? this.zeroValue : defaultValue;
+        }
+
+        int slotIndex = findSlot(key);
+        return slotIndex < 0 ? defaultValue : (V) this.values[slotIndex];
+    }
+
+
+    /**
+     * Return true if key is stored in table,
+     * otherwise return false.
+     *
+     * @param key key
+     * @return true if key is found in table
+     */
+    public boolean containsKey(long key) {
+        return key == EMPTY ? this.hasZeroKey : findSlot(key) >= 0;
+    }
+
+
+    /**
+     * Return true if value is stored in table,
+     * otherwise return false.
+     *
+     * @param value value
+     * @return true if value is found in table
+     */
+    public boolean containsValue(V value) {
+        if (this.hasZeroKey && Objects.equals(this.zeroValue, value)) {
+            return true;
+        }
+
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != EMPTY && Objects.equals(this.values[i], value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Remove (key, value) pair from table.
+     * <p>
+     * Following pairs of the same probe run are moved back,
+     * so lookups never stop too early on the freed slot.
+     *
+     * @param key key
+     */
+    public void remove(long key) {
+        if (key == EMPTY) {
+            if (this.hasZeroKey) {
+                this.hasZeroKey = false;
+                this.zeroValue = null;
+                this.size--;
+            }
+            return;
+        }
+
+        int slotIndex = findSlot(key);
+        if (slotIndex < 0) {
+            return;
+        }
+
+        int nextIndex = (slotIndex + 1) & this.mask;
+        while (this.keys[nextIndex] != EMPTY) {
+            int homeIndex = getSlotIndex(this.keys[nextIndex]);
+
+            /* pair can be moved only if freed slot lies between its home slot and its slot */
+            if (((nextIndex - homeIndex) & this.mask) >= ((nextIndex - slotIndex) & this.mask)) {
+                this.keys[slotIndex] = this.keys[nextIndex];
+                this.values[slotIndex] = this.values[nextIndex];
+                slotIndex = nextIndex;
+            }
+            nextIndex = (nextIndex + 1) & this.mask;
+        }
+
+        this.keys[slotIndex] = EMPTY;
+        this.values[slotIndex] = null;
+        this.size--;
+    }
+
+
+    /**
+     * Return total number of (key, value) pairs stored in table
+     *
+     * @return table size
+     */
+    public int size() {
+        return this.size;
+    }
+
+
+    /**
+     * Return true if table is empty,
+     * otherwise return false.
+     *
+     * @return true if table is empty
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+
+    /**
+     * Return nice visual representation of the table.
+     *
+     * @return whole table in one String
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        if (this.hasZeroKey) {
+            sb.append("(0 : ")
+                    .append(this.zeroValue)
+                    .append(")\n");
+        }
+
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != EMPTY) {
+                sb.append(i)
+                        .append(") (")
+                        .append(this.keys[i])
+                        .append(" : ")
+                        .append(this.values[i])
+                        .append(")\n");
+            }
+        }
+
+        return sb.toString();
+    }
+
+
+}
@@ -0,0 +1,69 @@
+package hashtable;
+
+/**
+ * Least recently used eviction policy.
+ * <p>
+ * Keys are kept in one access ordered list, nodes are found through SimpleHashtable,
+ * so every operation is O(1).
+ *
+ * @param <K> key type
+ * @author sskender
+ */
+public class LruPolicy<K> implements EvictionPolicy<K> {
+
+
+    private final SimpleHashtable<K, AccessOrderList.Node<K>> nodes = new SimpleHashtable<>();
+    private final AccessOrderList<K> order = new AccessOrderList<>();
+
+
+    @Override
+    public void onInsert(K key, int weight) {
+        AccessOrderList.Node<K> node = new AccessOrderList.Node<>(key, weight);
+        this.nodes.put(key, node);
+        this.order.addLast(node);
+    }
+
+
+    @Override
+    public void onUpdate(K key, int weight) {
+        AccessOrderList.Node<K> node = this.nodes.get(key);
+        if (node != null) {
+            this.order.setWeight(node, weight);
+            this.order.moveToLast(node);
+        }
+    }
+
+
+    @Override
+    public void onAccess(K key) {
+        AccessOrderList.Node<K> node = this.nodes.get(key);
+        if (node != null) {
+            this.order.moveToLast(node);
+        }
+    }
+
+
+    @Override
+    public void onRemove(K key) {
+        AccessOrderList.Node<K> node = this.nodes.get(key);
+        if (node != null) {
+            this.nodes.remove(key);
+            this.order.remove(node);
+        }
+    }
+
+
+    @Override
+    public K evict() {
+        AccessOrderList.Node<K> victim = this.order.head();
+        if (victim == null) {
+            return null;
+        }
+
+        this.nodes.remove(victim.key);
+        this.order.remove(victim);
+        return victim.key;
+    }
+
+
+}
@@ -0,0 +1,411 @@
+package hashtable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Read only hash table served straight from a memory mapped snapshot file.
+ * <p>
+ * Snapshot is written by write(), from any table which has forEach(BiConsumer).
+ * Opening a snapshot only maps the file, nothing is read or deserialized up front.
+ * Operating system pages file in as lookups touch it,
+ * so a restarted service can take traffic right away.
+ * <p>
+ * File layout:
+ * <ul>
+ * <li>header - magic, version, number of slots, number of pairs</li>
+ * <li>index - open addressing table, each slot is hash of key bytes and record offset</li>
+ * <li>records - key length, value length, key bytes, value bytes</li>
+ * </ul>
+ * Keys are hashed by their serialized bytes, not by hashCode(),
+ * so snapshot does not depend on the JVM which wrote it.
+ * Whole file must fit in one mapping, which limits it to 2 GB.
+ * <p>
+ * Table is never modified, so any number of threads can read it at once,
+ * also while another thread closes it.
+ * Mapping is released by garbage collector, never while a reader or a view from getBytes() still uses it.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author sskender
+ */
+public class MappedHashtable<K, V> implements AutoCloseable {
+
+
+    private static final int MAGIC = 0x53485431;
+    private static final int VERSION = 1;
+
+    /* magic, version, number of slots, number of pairs */
+    private static final int HEADER_BYTES = 16;
+    /* hash of key bytes, record offset */
+    private static final int SLOT_BYTES = 8;
+    /* key length, value length */
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /* offset of empty slot, records always start after the index */
+    private static final int EMPTY = 0;
+
+    private final MappedByteBuffer buffer;
+    private volatile boolean closed;
+    private final int mask;
+    private final int size;
+
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+
+
+    private MappedHashtable(MappedByteBuffer buffer, Serializer<K> keySerializer, Serializer<V> valueSerializer)
+            throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a hashtable snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4));
+        }
+
+        this.buffer = buffer;
+        this.mask = buffer.getInt(8) - 1;
+        this.size = buffer.getInt(12);
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+    }
+
+
+    /**
+     * Map snapshot file into memory.
+     *
+     * @param file            snapshot file
+     * @param keySerializer   serializer snapshot was written with
+     * @param valueSerializer serializer snapshot was written with
+     * @param <K>             key type
+     * @param <V>             value type
+     * @return table backed by the file
+     * @throws IOException if file can not be mapped or is not a snapshot
+     */
+    public static <K, V> MappedHashtable<K, V> open(Path file, Serializer<K> keySerializer,
+                                                    Serializer<V> valueSerializer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            /* mapping stays valid after channel is closed */
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedHashtable<>(buffer, keySerializer, valueSerializer);
+        }
+    }
+
+
+    /**
+     * Write snapshot of pairs to file.
+     * <p>
+     * Snapshot is written to a temporary file first, forced to disk and then moved in place,
+     * so a crash never leaves a half written snapshot behind.
+     *
+     * @param file            snapshot file
+     * @param size            number of pairs
+     * @param forEach         calls its argument for every pair, like table::forEach
+     * @param keySerializer   key serializer
+     * @param valueSerializer value serializer
+     * @param <K>             key type
+     * @param <V>             value type
+     * @throws IOException if file can not be written
+     */
+    public static <K, V> void write(Path file, int size, Consumer<BiConsumer<K, V>> forEach,
+                                    Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        int numberOfSlots = 2;
+        while (numberOfSlots < 2L * size) {
+            numberOfSlots *= 2;
+        }
+
+        int mask = numberOfSlots - 1;
+        int[] slotHashes = new int[numberOfSlots];
+        int[] slotOffsets = new int[numberOfSlots];
+        long dataOffset = HEADER_BYTES + (long) numberOfSlots * SLOT_BYTES;
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                RecordWriter records = new RecordWriter(channel, dataOffset);
+                int[] count = {0};
+
+                try {
+                    forEach.accept((key, value) -> {
+                        if (++count[0] > size) {
+                            throw new IllegalArgumentException("Table has more pairs than given size");
+                        }
+
+                        byte[] keyBytes = keySerializer.serialize(key);
+                        byte[] valueBytes = valueSerializer.serialize(value);
+                        int hash = hash(ByteBuffer.wrap(keyBytes));
+
+                        int slotIndex = hash & mask;
+                        while (slotOffsets[slotIndex] != EMPTY) {
+                            slotIndex = (slotIndex + 1) & mask;
+                        }
+                        slotHashes[slotIndex] = hash;
+                        slotOffsets[slotIndex] = records.append(keyBytes, valueBytes);
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                records.flush();
+
+                ByteBuffer index = ByteBuffer.allocate(1 << 16);
+                index.putInt(MAGIC).putInt(VERSION).putInt(numberOfSlots).putInt(count[0]);
+                long position = 0;
+                for (int i = 0; i < numberOfSlots; i++) {
+                    if (index.remaining() < SLOT_BYTES) {
+                        position += writeFully(channel, index, position);
+                    }
+                    index.putInt(slotHashes[i]).putInt(slotOffsets[i]);
+                }
+                writeFully(channel, index, position);
+
+                /* data must be on disk before rename is, or power loss can leave an empty file */
+                channel.force(true);
+            }
+
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            /* left only if writing failed */
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+
+    private static int writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        bytes.flip();
+        int written = 0;
+        while (bytes.hasRemaining()) {
+            written += channel.write(bytes, position + written);
+        }
+        bytes.clear();
+        return written;
+    }
+
+
+    /**
+     * FNV-1a hash of remaining bytes of buffer.
+     * Part of file format, must not change without changing VERSION.
+     */
+    private static int hash(ByteBuffer bytes) {
+        int h = 0x811c9dc5;
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            h = (h ^ bytes.get(i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+
+    private void ensureOpen() {
+        if (this.closed) {
+            throw new IllegalStateException("Table is closed");
+        }
+    }
+
+
+    /**
+     * Find record of key.
+     *
+     * @param key key
+     * @return record offset, or EMPTY if key is not in table
+     */
+    private int findRecord(K key) {
+        ensureOpen();
+
+        ByteBuffer keyBytes = ByteBuffer.wrap(this.keySerializer.serialize(key));
+        int hash = hash(keyBytes);
+        int slotIndex = hash & this.mask;
+
+        while (true) {
+            int slotPosition = HEADER_BYTES + slotIndex * SLOT_BYTES;
+            int offset = this.buffer.getInt(slotPosition + 4);
+
+            if (offset == EMPTY) {
+                return EMPTY;
+            }
+            if (this.buffer.getInt(slotPosition) == hash && recordKey(offset).equals(keyBytes)) {
+                return offset;
+            }
+
+            slotIndex = (slotIndex + 1) & this.mask;
+        }
+    }
+
+
+    private ByteBuffer recordKey(int offset) {
+        return this.buffer.slice(offset + RECORD_HEADER_BYTES, this.buffer.getInt(offset));
+    }
+
+
+    private ByteBuffer recordValue(int offset) {
+        int keyLength = this.buffer.getInt(offset);
+        return this.buffer.slice(offset + RECORD_HEADER_BYTES + keyLength, this.buffer.getInt(offset + 4));
+    }
+
+
+    /**
+     * Return value if key exists in table.
+     * Returns null if:
+     * key does not exist in table
+     * key is null
+     *
+     * @param key key
+     * @return value
+     */
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        int offset = findRecord(key);
+        return offset == EMPTY ? null : this.valueSerializer.deserialize(recordValue(offset));
+    }
+
+
+    /**
+     * Return view of serialized value in mapped file, without deserializing it,
+     * or null if key does not exist in table.
+     * View stays valid after close().
+     *
+     * @param key key
+     * @return read only value bytes
+     */
+    public ByteBuffer getBytes(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        int offset = findRecord(key);
+        return offset == EMPTY ? null : recordValue(offset);
+    }
+
+
+    /**
+     * Return true if key is stored in table,
+     * otherwise return false.
+     *
+     * @param key key
+     * @return true if key is found in table
+     */
+    public boolean containsKey(K key) {
+        return key != null && findRecord(key) != EMPTY;
+    }
+
+
+    /**
+     * Call action for every (key, value) pair in table,
+     * which deserializes all of them.
+     *
+     * @param action action
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        ensureOpen();
+
+        for (int slotIndex = 0; slotIndex <= this.mask; slotIndex++) {
+            int offset = this.buffer.getInt(HEADER_BYTES + slotIndex * SLOT_BYTES + 4);
+            if (offset != EMPTY) {
+                action.accept(this.keySerializer.deserialize(recordKey(offset)),
+                        this.valueSerializer.deserialize(recordValue(offset)));
+            }
+        }
+    }
+
+
+    /**
+     * Return total number of (key, value) pairs stored in table
+     *
+     * @return table size
+     */
+    public int size() {
+        return this.size;
+    }
+
+
+    /**
+     * Return true if table is empty,
+     * otherwise return false.
+     *
+     * @return true if table is empty
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+
+    /**
+     * Close the table, later lookups throw IllegalStateException.
+     * File is not unmapped right away, a read only mapping is left to garbage collector,
+     * so reads already in progress and views returned by getBytes() stay valid.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+    }
+
+
+    /**
+     * Appends records to file through one reused buffer.
+     */
+    private static final class RecordWriter {
+
+
+        private final FileChannel channel;
+        private final ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+        private long position;
+
+
+        RecordWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+
+        /**
+         * @return offset of appended record
+         */
+        int append(byte[] key, byte[] value) {
+            long offset = this.position + this.pending.position();
+            long recordBytes = (long) RECORD_HEADER_BYTES + key.length + value.length;
+            if (offset + recordBytes > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot is larger than 2 GB");
+            }
+
+            try {
+                if (this.pending.remaining() < recordBytes) {
+                    flush();
+                }
+
+                if (this.pending.remaining() >= recordBytes) {
+                    this.pending.putInt(key.length).putInt(value.length).put(key).put(value);
+                } else {
+                    /* record larger than buffer goes straight to file */
+                    ByteBuffer record = ByteBuffer.allocate((int) recordBytes);
+                    record.putInt(key.length).putInt(value.length).put(key).put(value);
+                    this.position += writeFully(this.channel, record, this.position);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return (int) offset;
+        }
+
+
+        void flush() throws IOException {
+            this.position += writeFully(this.channel, this.pending, this.position);
+        }
+
+
+    }
+
+
+}
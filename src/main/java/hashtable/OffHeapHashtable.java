@@ -0,0 +1,561 @@
+package hashtable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash table for binary keys and values which keeps all data outside of the java heap.
+ * <p>
+ * Pairs are appended to slabs, which are large direct ByteBuffers.
+ * Each record is laid out as: key length, value length, key bytes, value bytes.
+ * <p>
+ * Index is an open addressing table in direct ByteBuffers of INDEX_SEGMENT_SLOTS slots each,
+ * so it is not limited by the 2 GB size of a single buffer.
+ * Each slot holds record address and cached key hash.
+ * Heap holds only ByteBuffer objects of index segments and slabs, no matter how many pairs are stored,
+ * so garbage collector has nothing to scan.
+ * <p>
+ * Updating or removing a pair leaves its old record in the slab as garbage,
+ * compact() copies live records into fresh slabs, and leaves old ones to garbage collector.
+ * close() frees all memory right away instead of waiting for garbage collector.
+ * <p>
+ * Not thread safe.
+ *
+ * @author sskender
+ */
+public class OffHeapHashtable implements AutoCloseable {
+
+
+    private static final int DEFAULT_SIZE = 1024;
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    private static final double LOAD_FACTOR = 0.75;
+
+    /* slot = record address (8 bytes) + key hash (4 bytes) + padding (4 bytes) */
+    private static final int SLOT_BYTES = 16;
+    /* record header = key length (4 bytes) + value length (4 bytes) */
+    private static final int HEADER_BYTES = 8;
+
+    /* index is split into buffers of this many slots (1 MB each) */
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int INDEX_SEGMENT_SLOTS = 1 << SEGMENT_SHIFT;
+
+    /* largest index, slot numbers are ints */
+    private static final int MAX_SLOTS = 1 << 30;
+
+    /* address stored in empty slot, real addresses are stored incremented by one */
+    private static final long EMPTY = 0;
+
+    private final int slabSize;
+    private List<ByteBuffer> slabs = new ArrayList<>();
+    private ByteBuffer currentSlab;
+
+    private ByteBuffer[] index;
+    private int mask;
+    private int threshold;
+
+    private int size;
+    private long garbageBytes;
+    private boolean closed;
+
+
+    /**
+     * If custom size not specified, index of DEFAULT_SIZE slots
+     * and slabs of DEFAULT_SLAB_SIZE bytes are used.
+     */
+    public OffHeapHashtable() {
+        this(DEFAULT_SIZE, DEFAULT_SLAB_SIZE);
+    }
+
+
+    /**
+     * Create table with custom index size and slab size.
+     * Records larger than a slab get a slab of their own.
+     *
+     * @param numberOfSlots wanted index size
+     * @param slabSize      size of one slab in bytes
+     */
+    public OffHeapHashtable(int numberOfSlots, int slabSize) {
+        if (numberOfSlots < 0) {
+            throw new IllegalArgumentException("Size can not be less than zero");
+        }
+        if (numberOfSlots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Size can not be more than " + MAX_SLOTS);
+        }
+        if (slabSize < HEADER_BYTES) {
+            throw new IllegalArgumentException("Slab size must be at least " + HEADER_BYTES + " bytes");
+        }
+
+        int n = 2;
+        while (n < numberOfSlots) {
+            n *= 2;
+        }
+
+        this.slabSize = slabSize;
+        allocateIndex(n);
+    }
+
+
+    private void allocateIndex(int numberOfSlots) {
+        int segmentSlots = Math.min(numberOfSlots, INDEX_SEGMENT_SLOTS);
+        this.index = new ByteBuffer[numberOfSlots / segmentSlots];
+        for (int i = 0; i < this.index.length; i++) {
+            this.index[i] = ByteBuffer.allocateDirect(segmentSlots * SLOT_BYTES);
+        }
+        this.mask = numberOfSlots - 1;
+        this.threshold = (int) (numberOfSlots * LOAD_FACTOR);
+    }
+
+
+    private void ensureOpen() {
+        if (this.closed) {
+            throw new IllegalStateException("Table is closed");
+        }
+    }
+
+
+    /**
+     * FNV-1a hash of remaining bytes of buffer, spread for power of two tables.
+     *
+     * @param key key bytes
+     * @return hash
+     */
+    private static int hash(ByteBuffer key) {
+        int h = 0x811c9dc5;
+        for (int i = key.position(); i < key.limit(); i++) {
+            h = (h ^ key.get(i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+
+    private static int slabIndex(long address) {
+        return (int) (address >>> 32);
+    }
+
+
+    private static int slabOffset(long address) {
+        return (int) address;
+    }
+
+
+    private static ByteBuffer segment(ByteBuffer[] index, int slotIndex) {
+        return index[slotIndex >>> SEGMENT_SHIFT];
+    }
+
+
+    /**
+     * Return byte offset of slot within its segment.
+     */
+    private static int slotOffset(int slotIndex) {
+        return (slotIndex & (INDEX_SEGMENT_SLOTS - 1)) * SLOT_BYTES;
+    }
+
+
+    private long slotAddress(int slotIndex) {
+        return segment(this.index, slotIndex).getLong(slotOffset(slotIndex));
+    }
+
+
+    private int slotHash(int slotIndex) {
+        return segment(this.index, slotIndex).getInt(slotOffset(slotIndex) + 8);
+    }
+
+
+    private void setSlot(int slotIndex, long address, int hash) {
+        ByteBuffer segment = segment(this.index, slotIndex);
+        segment.putLong(slotOffset(slotIndex), address);
+        segment.putInt(slotOffset(slotIndex) + 8, hash);
+    }
+
+
+    /**
+     * Return view of stored key of record at given address.
+     */
+    private ByteBuffer recordKey(long address) {
+        ByteBuffer slab = this.slabs.get(slabIndex(address));
+        int offset = slabOffset(address);
+        return slab.slice(offset + HEADER_BYTES, slab.getInt(offset));
+    }
+
+
+    /**
+     * Return read only view of stored value of record at given address.
+     */
+    private ByteBuffer recordValue(long address) {
+        ByteBuffer slab = this.slabs.get(slabIndex(address));
+        int offset = slabOffset(address);
+        int keyLength = slab.getInt(offset);
+        return slab.slice(offset + HEADER_BYTES + keyLength, slab.getInt(offset + 4)).asReadOnlyBuffer();
+    }
+
+
+    private int recordBytes(long address) {
+        ByteBuffer slab = this.slabs.get(slabIndex(address));
+        int offset = slabOffset(address);
+        return HEADER_BYTES + slab.getInt(offset) + slab.getInt(offset + 4);
+    }
+
+
+    /**
+     * Append record to the arena.
+     *
+     * @return address of new record
+     */
+    private long appendRecord(ByteBuffer key, ByteBuffer value) {
+        int keyLength = key.remaining();
+        int valueLength = value.remaining();
+        long recordBytes = (long) HEADER_BYTES + keyLength + valueLength;
+        if (recordBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Record is too large");
+        }
+
+        if (this.currentSlab == null || this.currentSlab.remaining() < recordBytes) {
+            this.currentSlab = ByteBuffer.allocateDirect(Math.max(this.slabSize, (int) recordBytes));
+            this.slabs.add(this.currentSlab);
+        }
+
+        ByteBuffer slab = this.currentSlab;
+        int offset = slab.position();
+
+        slab.putInt(keyLength)
+                .putInt(valueLength)
+                .put(key.duplicate())
+                .put(value.duplicate());
+
+        return ((long) (this.slabs.size() - 1) << 32) | offset;
+    }
+
+
+    /**
+     * Find slot which contains key.
+     *
+     * @param key  key bytes
+     * @param hash hash of key
+     * @return slot index or -1 if key is not in table
+     */
+    private int findSlot(ByteBuffer key, int hash) {
+        int slotIndex = hash & this.mask;
+
+        while (true) {
+            long stored = slotAddress(slotIndex);
+            if (stored == EMPTY) {
+                return -1;
+            }
+            if (slotHash(slotIndex) == hash && recordKey(stored - 1).equals(key)) {
+                return slotIndex;
+            }
+            slotIndex = (slotIndex + 1) & this.mask;
+        }
+    }
+
+
+    /**
+     * Store (key, value) pair in table.
+     * <p>
+     * If key already exists in table then update its value.
+     * Remaining bytes of both buffers are copied, their positions are not changed.
+     *
+     * @param key   key bytes
+     * @param value value bytes
+     */
+    public void put(ByteBuffer key, ByteBuffer value) {
+        ensureOpen();
+        if (key == null || value == null) {
+            return;
+        }
+
+        int hash = hash(key);
+        int slotIndex = findSlot(key, hash);
+
+        if (slotIndex >= 0) {
+            long oldAddress = slotAddress(slotIndex) - 1;
+            this.garbageBytes += recordBytes(oldAddress);
+            setSlot(slotIndex, appendRecord(key, value) + 1, hash);
+            return;
+        }
+
+        if (this.size >= this.threshold) {
+            growIndex();
+        }
+
+        insert(appendRecord(key, value) + 1, hash);
+        this.size++;
+    }
+
+
+    /**
+     * Store (key, value) pair in table.
+     *
+     * @param key   key bytes
+     * @param value value bytes
+     */
+    public void put(byte[] key, byte[] value) {
+        if (key == null || value == null) {
+            return;
+        }
+
+        put(ByteBuffer.wrap(key), ByteBuffer.wrap(value));
+    }
+
+
+    /**
+     * Place slot content which is known not to be in index.
+     */
+    private void insert(long storedAddress, int hash) {
+        int slotIndex = hash & this.mask;
+        while (slotAddress(slotIndex) != EMPTY) {
+            slotIndex = (slotIndex + 1) & this.mask;
+        }
+        setSlot(slotIndex, storedAddress, hash);
+    }
+
+
+    private void growIndex() {
+        ByteBuffer[] oldIndex = this.index;
+        int oldSlots = this.mask + 1;
+        if (oldSlots == MAX_SLOTS) {
+            throw new IllegalStateException("Table can not hold more than " + this.threshold + " pairs");
+        }
+
+        allocateIndex(oldSlots * 2);
+
+        for (int i = 0; i < oldSlots; i++) {
+            long stored = segment(oldIndex, i).getLong(slotOffset(i));
+            if (stored != EMPTY) {
+                insert(stored, segment(oldIndex, i).getInt(slotOffset(i) + 8));
+            }
+        }
+
+        for (ByteBuffer segment : oldIndex) {
+            DirectMemory.free(segment);
+        }
+    }
+
+
+    /**
+     * Return read only view of stored value, without copying it.
+     * Returns null if key does not exist in table.
+     * <p>
+     * Records are never overwritten, so view keeps the value it was taken with,
+     * also after the pair is updated or removed, or table is compacted.
+     * Using it after close() reads freed memory.
+     *
+     * @param key key bytes
+     * @return value bytes
+     */
+    public ByteBuffer get(ByteBuffer key) {
+        ensureOpen();
+        if (key == null) {
+            return null;
+        }
+
+        int slotIndex = findSlot(key, hash(key));
+        return slotIndex < 0 ? null : recordValue(slotAddress(slotIndex) - 1);
+    }
+
+
+    /**
+     * Return read only view of stored value, without copying it.
+     *
+     * @param key key bytes
+     * @return value bytes
+     * @see #get(ByteBuffer)
+     */
+    public ByteBuffer get(byte[] key) {
+        return key == null ? null : get(ByteBuffer.wrap(key));
+    }
+
+
+    /**
+     * Return copy of stored value on the heap,
+     * or null if key does not exist in table.
+     *
+     * @param key key bytes
+     * @return value bytes
+     */
+    public byte[] getBytes(byte[] key) {
+        ByteBuffer value = get(key);
+        if (value == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        return bytes;
+    }
+
+
+    /**
+     * Return true if key is stored in table,
+     * otherwise return false.
+     *
+     * @param key key bytes
+     * @return true if key is found in table
+     */
+    public boolean containsKey(ByteBuffer key) {
+        ensureOpen();
+        return key != null && findSlot(key, hash(key)) >= 0;
+    }
+
+
+    /**
+     * Return true if key is stored in table,
+     * otherwise return false.
+     *
+     * @param key key bytes
+     * @return true if key is found in table
+     */
+    public boolean containsKey(byte[] key) {
+        return key != null && containsKey(ByteBuffer.wrap(key));
+    }
+
+
+    /**
+     * Remove (key, value) pair from table.
+     *
+     * @param key key bytes
+     */
+    public void remove(ByteBuffer key) {
+        ensureOpen();
+        if (key == null) {
+            return;
+        }
+
+        int slotIndex = findSlot(key, hash(key));
+        if (slotIndex < 0) {
+            return;
+        }
+
+        this.garbageBytes += recordBytes(slotAddress(slotIndex) - 1);
+
+        /* move following slots of the same probe run back */
+        int nextIndex = (slotIndex + 1) & this.mask;
+        while (slotAddress(nextIndex) != EMPTY) {
+            int homeIndex = slotHash(nextIndex) & this.mask;
+            if (((nextIndex - homeIndex) & this.mask) >= ((nextIndex - slotIndex) & this.mask)) {
+                setSlot(slotIndex, slotAddress(nextIndex), slotHash(nextIndex));
+                slotIndex = nextIndex;
+            }
+            nextIndex = (nextIndex + 1) & this.mask;
+        }
+
+        setSlot(slotIndex, EMPTY, 0);
+        this.size--;
+    }
+
+
+    /**
+     * Remove (key, value) pair from table.
+     *
+     * @param key key bytes
+     */
+    public void remove(byte[] key) {
+        if (key != null) {
+            remove(ByteBuffer.wrap(key));
+        }
+    }
+
+
+    /**
+     * Copy live records into new slabs and drop the old ones,
+     * so space of updated and removed pairs is given back.
+     * <p>
+     * Old slabs are not freed here, views returned by get() may still point into them.
+     * Garbage collector frees each of them once no view uses it.
+     */
+    public void compact() {
+        ensureOpen();
+
+        List<ByteBuffer> oldSlabs = this.slabs;
+        this.slabs = new ArrayList<>();
+        this.currentSlab = null;
+
+        for (int i = 0; i <= this.mask; i++) {
+            long stored = slotAddress(i);
+            if (stored != EMPTY) {
+                ByteBuffer slab = oldSlabs.get(slabIndex(stored - 1));
+                int offset = slabOffset(stored - 1);
+                int keyLength = slab.getInt(offset);
+
+                ByteBuffer key = slab.slice(offset + HEADER_BYTES, keyLength);
+                ByteBuffer value = slab.slice(offset + HEADER_BYTES + keyLength, slab.getInt(offset + 4));
+
+                setSlot(i, appendRecord(key, value) + 1, slotHash(i));
+            }
+        }
+
+        this.garbageBytes = 0;
+    }
+
+
+    /**
+     * Return total number of (key, value) pairs stored in table
+     *
+     * @return table size
+     */
+    public int size() {
+        return this.size;
+    }
+
+
+    /**
+     * Return true if table is empty,
+     * otherwise return false.
+     *
+     * @return true if table is empty
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+
+    /**
+     * Return number of off-heap bytes held by index and slabs.
+     *
+     * @return allocated bytes
+     */
+    public long allocatedBytes() {
+        long total = 0;
+        for (ByteBuffer segment : this.index) {
+            total += segment.capacity();
+        }
+        for (ByteBuffer slab : this.slabs) {
+            total += slab.capacity();
+        }
+        return total;
+    }
+
+
+    /**
+     * Return number of slab bytes taken by updated and removed records.
+     *
+     * @return bytes which compact() would give back
+     */
+    public long garbageBytes() {
+        return this.garbageBytes;
+    }
+
+
+    /**
+     * Free index and all slabs.
+     * Table can not be used afterwards, and neither can any view returned by get().
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        this.slabs.forEach(DirectMemory::free);
+        this.slabs = new ArrayList<>();
+        this.currentSlab = null;
+        for (ByteBuffer segment : this.index) {
+            DirectMemory.free(segment);
+        }
+        this.size = 0;
+    }
+
+
+}
@@ -0,0 +1,389 @@
+package hashtable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.BiConsumer;
+
+/**
+ * Open addressing hash table implementation.
+ * <p>
+ * Same public API as SimpleHashtable, but there are no entry objects.
+ * Keys, values and cached hashes are stored in three parallel arrays,
+ * so lookup usually touches one or two cache lines.
+ * <p>
+ * Collisions are resolved with Robin Hood linear probing:
+ * while inserting, pair which is further away from its home slot
+ * takes the place of the pair which is closer to its home slot.
+ * This keeps probe lengths short and even.
+ * Removal shifts following pairs one slot back instead of leaving
+ * tombstones, so table never fills up with deleted slots.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author sskender
+ */
+public class RobinHoodHashtable<K, V> {
+
+
+    private static final int DEFAULT_SIZE = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.85;
+
+    /* hash value of an empty slot, stored hashes always have highest bit set */
+    private static final int EMPTY = 0;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+
+    private int mask;
+    private int size;
+    private int threshold;
+
+    private final double loadFactor;
+
+
+    /**
+     * If custom size not specified, table of size DEFAULT_SIZE is be created.
+     */
+    public RobinHoodHashtable() {
+        this(RobinHoodHashtable.DEFAULT_SIZE);
+    }
+
+
+    /**
+     * Create table of custom number of slots.
+     *
+     * @param numberOfSlots wanted table size
+     */
+    public RobinHoodHashtable(int numberOfSlots) {
+        this(numberOfSlots, RobinHoodHashtable.DEFAULT_LOAD_FACTOR);
+    }
+
+
+    /**
+     * Create table of custom number of slots and custom load factor.
+     *
+     * @param numberOfSlots wanted table size
+     * @param loadFactor    maximum ratio of pairs to slots, less than 1
+     */
+    public RobinHoodHashtable(int numberOfSlots, double loadFactor) {
+        if (numberOfSlots < 0) {
+            throw new IllegalArgumentException("Size can not be less than zero");
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be between zero and one");
+        }
+
+        this.loadFactor = loadFactor;
+        allocate(Math.max(2, Integer.highestOneBit(Math.max(1, numberOfSlots - 1)) << 1));
+    }
+
+
+    private void allocate(int numberOfSlots) {
+        this.keys = new Object[numberOfSlots];
+        this.values = new Object[numberOfSlots];
+        this.hashes = new int[numberOfSlots];
+        this.mask = numberOfSlots - 1;
+        this.threshold = (int) Math.min(numberOfSlots - 1, numberOfSlots * this.loadFactor);
+    }
+
+
+    /**
+     * Spread high bits of hashcode into low bits and mark hash as used.
+     *
+     * @param key key
+     * @return hash which is never EMPTY
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) | 0x80000000;
+    }
+
+
+    /**
+     * Distance of slot from home slot of the hash stored in it.
+     */
+    private int probeDistance(int hash, int slotIndex) {
+        return (slotIndex - hash) & this.mask;
+    }
+
+
+    /**
+     * Find slot which contains key.
+     *
+     * @param key key
+     * @return slot index or -1 if key is not in table
+     */
+    private int findSlot(Object key) {
+        int hash = hash(key);
+        int slotIndex = hash & this.mask;
+
+        for (int distance = 0; ; distance++) {
+            int slotHash = this.hashes[slotIndex];
+
+            /* empty slot, or every following pair would have been placed before ours */
+            if (slotHash == EMPTY || probeDistance(slotHash, slotIndex) < distance) {
+                return -1;
+            }
+            if (slotHash == hash && this.keys[slotIndex].equals(key)) {
+                return slotIndex;
+            }
+
+            slotIndex = (slotIndex + 1) & this.mask;
+        }
+    }
+
+
+    /**
+     * Store (key, value) pair in table.
+     * <p>
+     * If key already exists in table then update its value,
+     * do not add another entry with the same key.
+     *
+     * @param key   key
+     * @param value value
+     */
+    public void put(K key, V value) {
+        if (key == null) {
+            return;
+        }
+
+        int existing = findSlot(key);
+        if (existing >= 0) {
+            this.values[existing] = value;
+            return;
+        }
+
+        if (this.size >= this.threshold) {
+            grow();
+        }
+
+        insert(hash(key), key, value);
+        this.size++;
+    }
+
+
+    /**
+     * Insert pair which is known not to be in table.
+     */
+    private void insert(int hash, Object key, Object value) {
+        int slotIndex = hash & this.mask;
+        int distance = 0;
+
+        while (true) {
+            int slotHash = this.hashes[slotIndex];
+
+            if (slotHash == EMPTY) {
+                this.hashes[slotIndex] = hash;
+                this.keys[slotIndex] = key;
+                this.values[slotIndex] = value;
+                return;
+            }
+
+            /* rich pair gives its slot to the poor one and continues probing */
+            int slotDistance = probeDistance(slotHash, slotIndex);
+            if (slotDistance < distance) {
+                Object slotKey = this.keys[slotIndex];
+                Object slotValue = this.values[slotIndex];
+
+                this.hashes[slotIndex] = hash;
+                this.keys[slotIndex] = key;
+                this.values[slotIndex] = value;
+
+                hash = slotHash;
+                key = slotKey;
+                value = slotValue;
+                distance = slotDistance;
+            }
+
+            slotIndex = (slotIndex + 1) & this.mask;
+            distance++;
+        }
+    }
+
+
+    private void grow() {
+        Object[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        int[] oldHashes = this.hashes;
+
+        allocate(oldHashes.length * 2);
+
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != EMPTY) {
+                insert(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+
+    /**
+     * Return value if key exists in table.
+     * Returns null if:
+     * key does not exist in table
+     * key is null
+     *
+     * @param key key
+     * @return value
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        int slotIndex = findSlot(key);
+        return slotIndex < 0 ? null : (V) this.values[slotIndex];
+    }
+
+
+    /**
+     * Return total number of (key, value) pairs stored in table
+     *
+     * @return table size
+     */
+    public int size() {
+        return this.size;
+    }
+
+
+    /**
+     * Return current number of slots in table.
+     *
+     * @return number of slots
+     */
+    public int capacity() {
+        return this.hashes.length;
+    }
+
+
+    /**
+     * Return true if key is stored in table,
+     * otherwise return false.
+     *
+     * @param key key
+     * @return true if key is found in table
+     */
+    public boolean containsKey(K key) {
+        return key != null && findSlot(key) >= 0;
+    }
+
+
+    /**
+     * Return true if value is stored in table,
+     * otherwise return false.
+     *
+     * @param value value
+     * @return true if value is found in table
+     */
+    public boolean containsValue(V value) {
+        for (int i = 0; i < this.hashes.length; i++) {
+            if (this.hashes[i] != EMPTY && this.values[i].equals(value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Remove (key, value) pair from table.
+     * <p>
+     * Following pairs which are not in their home slot
+     * are shifted one slot back.
+     *
+     * @param key key
+     */
+    public void remove(K key) {
+        if (key == null) {
+            return;
+        }
+
+        int slotIndex = findSlot(key);
+        if (slotIndex < 0) {
+            return;
+        }
+
+        int nextIndex = (slotIndex + 1) & this.mask;
+        while (this.hashes[nextIndex] != EMPTY && probeDistance(this.hashes[nextIndex], nextIndex) > 0) {
+            this.hashes[slotIndex] = this.hashes[nextIndex];
+            this.keys[slotIndex] = this.keys[nextIndex];
+            this.values[slotIndex] = this.values[nextIndex];
+
+            slotIndex = nextIndex;
+            nextIndex = (nextIndex + 1) & this.mask;
+        }
+
+        this.hashes[slotIndex] = EMPTY;
+        this.keys[slotIndex] = null;
+        this.values[slotIndex] = null;
+        this.size--;
+    }
+
+
+    /**
+     * Return true if table is empty,
+     * otherwise return false.
+     *
+     * @return true if table is empty
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+
+    /**
+     * Call action for every (key, value) pair in table.
+     *
+     * @param action action
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < this.hashes.length; i++) {
+            if (this.hashes[i] != EMPTY) {
+                action.accept((K) this.keys[i], (V) this.values[i]);
+            }
+        }
+    }
+
+
+    /**
+     * Write snapshot of table to file, which can be served later by MappedHashtable.open().
+     *
+     * @param file            snapshot file
+     * @param keySerializer   key serializer
+     * @param valueSerializer value serializer
+     * @throws IOException if file can not be written
+     */
+    public void writeSnapshot(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer)
+            throws IOException {
+        MappedHashtable.write(file, this.size, this::forEach, keySerializer, valueSerializer);
+    }
+
+
+    /**
+     * Return nice visual representation of the table.
+     *
+     * @return whole table in one String
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < this.hashes.length; i++) {
+            if (this.hashes[i] != EMPTY) {
+                sb.append(i)
+                        .append(") (")
+                        .append(this.keys[i])
+                        .append(" : ")
+                        .append(this.values[i])
+                        .append(")\n");
+            }
+        }
+
+        return sb.toString();
+    }
+
+
+}
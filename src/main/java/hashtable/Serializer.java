@@ -0,0 +1,76 @@
+package hashtable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Converts keys or values to bytes and back, for table snapshots.
+ *
+ * @param <T> type of converted objects
+ * @author sskender
+ */
+public interface Serializer<T> {
+
+    Serializer<String> STRING = of(
+            s -> s.getBytes(StandardCharsets.UTF_8),
+            b -> StandardCharsets.UTF_8.decode(b).toString());
+
+    Serializer<Integer> INTEGER = of(
+            i -> ByteBuffer.allocate(4).putInt(i).array(),
+            ByteBuffer::getInt);
+
+    Serializer<Long> LONG = of(
+            l -> ByteBuffer.allocate(8).putLong(l).array(),
+            ByteBuffer::getLong);
+
+    Serializer<byte[]> BYTES = of(
+            b -> b,
+            b -> {
+                byte[] bytes = new byte[b.remaining()];
+                b.get(bytes);
+                return bytes;
+            });
+
+    /**
+     * Convert object to bytes.
+     *
+     * @param value object
+     * @return bytes
+     */
+    byte[] serialize(T value);
+
+    /**
+     * Convert remaining bytes of buffer back to object.
+     * Buffer may be a view of a mapped file, so it should not be kept.
+     *
+     * @param bytes bytes
+     * @return object
+     */
+    T deserialize(ByteBuffer bytes);
+
+    /**
+     * Create serializer from two functions.
+     *
+     * @param serialize   object to bytes
+     * @param deserialize bytes to object
+     * @param <T>         type of converted objects
+     * @return serializer
+     */
+    static <T> Serializer<T> of(Function<T, byte[]> serialize, Function<ByteBuffer, T> deserialize) {
+        return new Serializer<T>() {
+
+            @Override
+            public byte[] serialize(T value) {
+                return serialize.apply(value);
+            }
+
+            @Override
+            public T deserialize(ByteBuffer bytes) {
+                return deserialize.apply(bytes);
+            }
+
+        };
+    }
+
+}
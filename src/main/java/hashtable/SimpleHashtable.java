@@ -1,31 +1,120 @@
 package hashtable;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 /**
  * Simple hash table implementation.
  * <p>
  * Data structure is an array of slots, each slot contains (key, value) pair.
  * Slot is an index in that array.
- * Slot index is calculated by modulo of key hashcode.
+ * Slot index is calculated from key hashcode:
+ * its high bits are spread into low bits, and it is masked by table size,
+ * which is always a power of two.
+ * Hash is cached in every entry, so equals() is called only when hashes match.
+ * <p>
+ * Slot whose chain grows to TREEIFY_THRESHOLD entries, all Comparable keys of the same class,
+ * is converted into a balanced tree, so even with many colliding keys
+ * an operation costs O(log n) instead of O(n).
+ * <p>
+ * Pairs can be walked through keySet(), values() and entrySet() views,
+ * which are backed by the table.
+ * Their iterators are fail-fast: if table is changed in any other way than through
+ * the iterator itself, they throw ConcurrentModificationException.
+ * Their spliterators split on ranges of slots, so parallel streams need no copy of the table.
+ * <p>
+ * Statistics (probe lengths, hits, misses, rehashes) are counted only after enableStats(),
+ * until then every operation pays for a single null check.
+ * <p>
+ * After enableValueIndex() table also keeps keys of every value,
+ * so containsValue() and keysForValue() do not have to scan the whole table.
+ * <p>
+ * Table grows when number of pairs exceeds load factor * number of slots,
+ * and optionally shrinks after heavy removal.
+ * Rehashing is incremental: old table is kept next to the new one
+ * and every operation moves only a few slots, so there is no single
+ * expensive rehash of the whole table.
  *
  * @param <K> key type
  * @param <V> value type
  * @author sskender
  */
-public class SimpleHashtable<K, V> {
+public class SimpleHashtable<K, V> implements Iterable<Map.Entry<K, V>> {
 
 
     private static final int DEFAULT_SIZE = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    /* number of old slots moved to new table on each operation while rehashing */
+    private static final int REHASH_STEP = 4;
+
+    /* chain length at which slot is converted into a tree */
+    private static final int TREEIFY_THRESHOLD = 8;
+    /* tree size at which slot is converted back into a chain */
+    private static final int UNTREEIFY_THRESHOLD = 6;
+    /* smaller tables grow soon enough, no need for trees there */
+    private static final int MIN_TREEIFY_SLOTS = 64;
+
+    /* number of keys sorted by slot at once in batch operations */
+    private static final int BATCH_SIZE = 512;
+
     private TableEntry<K, V>[] table;
     private int size;
 
+    private final double loadFactor;
+    private final boolean shrinkable;
+    private final int minimumSlots;
+
+    /* table being drained into table while rehashing, otherwise null */
+    private TableEntry<K, V>[] oldTable;
+    private int rehashIndex;
+
+    /* number of structural changes, checked by iterators */
+    private int modCount;
+
+    /* scratch space of batch operations, (slot << 32 | offset) and hash of each key */
+    private long[] batchOrder;
+    private int[] batchHashes;
+
+    /* operation counters, null while statistics are disabled */
+    private StatsRecorder stats;
+
+    /* keys of every value, null while value index is disabled */
+    private HashMap<V, Set<K>> valueIndex;
+
 
     /**
      * If custom size not specified, table of size DEFAULT_SIZE is be created.
      */
-    @SuppressWarnings("unchecked")
     public SimpleHashtable() {
-        this.table = (TableEntry<K, V>[]) new TableEntry[SimpleHashtable.DEFAULT_SIZE];
-        this.size = 0;
+        this(SimpleHashtable.DEFAULT_SIZE);
     }
 
 
@@ -34,13 +123,41 @@ public class SimpleHashtable<K, V> {
      *
      * @param numberOfSlots wanted table size
      */
-    @SuppressWarnings("unchecked")
     public SimpleHashtable(int numberOfSlots) {
-        this.table = (TableEntry<K, V>[]) new TableEntry[calculateTableSize(numberOfSlots)];
+        this(numberOfSlots, SimpleHashtable.DEFAULT_LOAD_FACTOR, false);
+    }
+
+
+    /**
+     * Create table of custom number of slots with custom resizing policy.
+     * <p>
+     * Table doubles when size exceeds loadFactor * number of slots.
+     * If shrinkable is true table halves when size drops below
+     * a quarter of that, but never below initial number of slots.
+     *
+     * @param numberOfSlots wanted table size
+     * @param loadFactor    maximum ratio of pairs to slots
+     * @param shrinkable    true if table should shrink after removal
+     */
+    public SimpleHashtable(int numberOfSlots, double loadFactor, boolean shrinkable) {
+        if (!(loadFactor > 0)) {
+            throw new IllegalArgumentException("Load factor must be greater than zero");
+        }
+
+        this.loadFactor = loadFactor;
+        this.shrinkable = shrinkable;
+        this.minimumSlots = Math.max(1, calculateTableSize(numberOfSlots));
+        this.table = newTable(this.minimumSlots);
         this.size = 0;
     }
 
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> TableEntry<K, V>[] newTable(int numberOfSlots) {
+        return (TableEntry<K, V>[]) new TableEntry[numberOfSlots];
+    }
+
+
     /**
      * Size of the table will be integer with this characteristics:
      * exponent of 2
@@ -76,13 +193,276 @@ public class SimpleHashtable<K, V> {
 
 
     /**
-     * Calculate index of the slot in which key should be located via hash method.
+     * Spread high bits of key hashcode into low bits,
+     * so keys which differ only in high bits do not end up in the same slot.
      *
      * @param key key
+     * @return hash
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+
+    /**
+     * Calculate index of the slot in which key should be located via hash method.
+     * Number of slots is a power of two, so mask works as modulo and is never negative.
+     *
+     * @param hash          hash of key
+     * @param numberOfSlots table size
      * @return slot index in table
      */
-    private int getSlotIndex(K key) {
-        return Math.abs(key.hashCode()) % this.table.length;
+    private static int getSlotIndex(int hash, int numberOfSlots) {
+        return hash & (numberOfSlots - 1);
+    }
+
+
+    /**
+     * Return current number of slots in table.
+     *
+     * @return number of slots
+     */
+    public int capacity() {
+        return this.table.length;
+    }
+
+
+    /**
+     * Return true if old table is still being moved to the new one.
+     *
+     * @return true if rehashing is in progress
+     */
+    public boolean isRehashing() {
+        return this.oldTable != null;
+    }
+
+
+    /**
+     * Prepare table for operation on given key.
+     * <p>
+     * While rehashing, old slot of the key is moved first,
+     * so operation has to look only at the new table,
+     * and then a few more old slots are moved.
+     *
+     * @param hash hash of key
+     */
+    private void rehashStep(int hash) {
+        if (this.oldTable == null) {
+            return;
+        }
+
+        long start = this.stats == null ? 0 : System.nanoTime();
+        moveOldSlot(getSlotIndex(hash, this.oldTable.length));
+
+        /* empty slots are cheap to skip, but still bounded */
+        int moved = 0;
+        int visited = 0;
+        while (moved < REHASH_STEP && visited < 4 * REHASH_STEP
+                && this.rehashIndex < this.oldTable.length) {
+            if (this.oldTable[this.rehashIndex] != null) {
+                moveOldSlot(this.rehashIndex);
+                moved++;
+            }
+            this.rehashIndex++;
+            visited++;
+        }
+
+        if (this.rehashIndex == this.oldTable.length) {
+            this.oldTable = null;
+            this.rehashIndex = 0;
+        }
+
+        if (this.stats != null) {
+            this.stats.rehashTimeNanos += System.nanoTime() - start;
+        }
+    }
+
+
+    /**
+     * Move every pair from old slot to the new table.
+     *
+     * @param oldSlotIndex index of slot in old table
+     */
+    private void moveOldSlot(int oldSlotIndex) {
+        TableEntry<K, V> temp = this.oldTable[oldSlotIndex];
+        this.oldTable[oldSlotIndex] = null;
+
+        if (temp instanceof TreeBin) {
+            for (TableEntry<K, V> entry : ((TreeBin<K, V>) temp).entryList()) {
+                addEntry(entry);
+            }
+            return;
+        }
+
+        while (temp != null) {
+            TableEntry<K, V> next = temp.getNext();
+            addEntry(temp);
+            temp = next;
+        }
+    }
+
+
+    /**
+     * Find entry of key in table.
+     *
+     * @param key  key
+     * @param hash hash of key
+     * @return entry or null if key is not in table
+     */
+    private TableEntry<K, V> findEntry(K key, int hash) {
+        TableEntry<K, V> temp = this.table[getSlotIndex(hash, this.table.length)];
+
+        if (temp instanceof TreeBin) {
+            return ((TreeBin<K, V>) temp).find(key);
+        }
+
+        while (temp != null) {
+            if (temp.hash == hash && temp.getKey().equals(key)) {
+                return temp;
+            } else {
+                temp = temp.getNext();
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Add entry whose key is known not to be in table
+     * at the end of its slot chain, or into its slot tree.
+     * <p>
+     * Chain which becomes too long is converted into a tree.
+     * Tree which can not take the key (key of another class) is converted back into a chain.
+     *
+     * @param entry entry
+     */
+    private void addEntry(TableEntry<K, V> entry) {
+        entry.setNext(null);
+
+        int slotIndex = getSlotIndex(entry.hash, this.table.length);
+        TableEntry<K, V> temp = this.table[slotIndex];
+
+        if (temp == null) {
+            /* no overflow */
+            this.table[slotIndex] = entry;
+            return;
+        }
+
+        if (temp instanceof TreeBin) {
+            TreeBin<K, V> tree = (TreeBin<K, V>) temp;
+            if (tree.accepts(entry.getKey())) {
+                tree.add(entry);
+                return;
+            }
+            temp = tree.toChain();
+            this.table[slotIndex] = temp;
+        }
+
+        /* overflow happened */
+        int chainLength = 1;
+        while (temp.getNext() != null) {
+            temp = temp.getNext();
+            chainLength++;
+        }
+        temp.setNext(entry);
+
+        if (chainLength + 1 >= TREEIFY_THRESHOLD && this.table.length >= MIN_TREEIFY_SLOTS) {
+            treeify(slotIndex);
+        }
+    }
+
+
+    /**
+     * Convert chain in slot into a tree,
+     * if all keys in it are Comparable and of the same class.
+     *
+     * @param slotIndex index of slot in table
+     */
+    private void treeify(int slotIndex) {
+        TableEntry<K, V> first = this.table[slotIndex];
+        Class<?> keyClass = first.getKey().getClass();
+
+        if (!Comparable.class.isAssignableFrom(keyClass)) {
+            return;
+        }
+        for (TableEntry<K, V> temp = first; temp != null; temp = temp.getNext()) {
+            if (temp.getKey().getClass() != keyClass) {
+                return;
+            }
+        }
+
+        TreeBin<K, V> tree = new TreeBin<>(keyClass);
+        TableEntry<K, V> temp = first;
+        while (temp != null) {
+            TableEntry<K, V> next = temp.getNext();
+            tree.add(temp);
+            temp = next;
+        }
+
+        this.table[slotIndex] = tree;
+    }
+
+
+    /**
+     * Move rest of the old table at once.
+     */
+    private void finishRehash() {
+        if (this.oldTable == null) {
+            return;
+        }
+
+        long start = this.stats == null ? 0 : System.nanoTime();
+        for (; this.rehashIndex < this.oldTable.length; this.rehashIndex++) {
+            moveOldSlot(this.rehashIndex);
+        }
+
+        this.oldTable = null;
+        this.rehashIndex = 0;
+
+        if (this.stats != null) {
+            this.stats.rehashTimeNanos += System.nanoTime() - start;
+        }
+    }
+
+
+    /**
+     * Start rehashing into table of given number of slots.
+     * <p>
+     * Previous rehash, if any, is finished first.
+     * It is always done by then in practice, since table has to
+     * double its size before the next resize is due.
+     *
+     * @param numberOfSlots new table size
+     */
+    private void resize(int numberOfSlots) {
+        finishRehash();
+
+        this.oldTable = this.table;
+        this.rehashIndex = 0;
+        this.table = newTable(numberOfSlots);
+        this.modCount++;
+
+        if (this.stats != null) {
+            this.stats.rehashCount++;
+        }
+    }
+
+
+    private void growIfNeeded() {
+        if (this.size > this.loadFactor * this.table.length) {
+            resize(this.table.length * 2);
+        }
+    }
+
+
+    private void shrinkIfNeeded() {
+        if (this.shrinkable
+                && this.table.length > this.minimumSlots
+                && this.size < this.loadFactor * this.table.length / 4) {
+            resize(this.table.length / 2);
+        }
     }
 
 
@@ -100,28 +480,36 @@ public class SimpleHashtable<K, V> {
             return;
         }
 
-        int slotIndex = getSlotIndex(key);
+        putHashed(key, hash(key), value);
+    }
 
-        if (this.table[slotIndex] == null) {
-            /* no overflow */
-            this.table[slotIndex] = new TableEntry<K, V>(key, value);
-            this.size++;
-        } else {
-            /* overflow happened */
-            TableEntry<K, V> temp = this.table[slotIndex];
 
-            while (!temp.getKey().equals(key) && temp.next != null) {
-                temp = temp.getNext();
-            }
+    private void putHashed(K key, int hash, V value) {
+        rehashStep(hash);
 
-            if (temp.getKey().equals(key)) {
-                temp.setValue(value);
-            } else {
-                temp.setNext(new TableEntry<K, V>(key, value));
-                this.size++;
+        if (this.stats != null) {
+            this.stats.recordPut(countProbes(key, hash));
+        }
+
+        TableEntry<K, V> existing = findEntry(key, hash);
+        if (existing != null) {
+            V oldValue = existing.setValue(value);
+            if (this.valueIndex != null) {
+                unindexValue(key, oldValue);
+                indexValue(key, value);
             }
+            return;
+        }
+
+        addEntry(new TableEntry<K, V>(hash, key, value));
+        this.size++;
+        this.modCount++;
 
+        if (this.valueIndex != null) {
+            indexValue(key, value);
         }
+
+        growIfNeeded();
     }
 
 
@@ -139,18 +527,15 @@ public class SimpleHashtable<K, V> {
             return null;
         }
 
-        int slotIndex = getSlotIndex(key);
-        TableEntry<K, V> temp = this.table[slotIndex];
+        int hash = hash(key);
+        rehashStep(hash);
 
-        while (temp != null) {
-            if (temp.getKey().equals(key)) {
-                return temp.getValue();
-            } else {
-                temp = temp.getNext();
-            }
+        TableEntry<K, V> entry = findEntry(key, hash);
+        if (this.stats != null) {
+            this.stats.recordGet(entry != null, countProbes(key, hash));
         }
 
-        return null;
+        return entry == null ? null : entry.getValue();
     }
 
 
@@ -176,18 +561,15 @@ public class SimpleHashtable<K, V> {
             return false;
         }
 
-        int slotIndex = getSlotIndex(key);
-        TableEntry<K, V> temp = this.table[slotIndex];
+        int hash = hash(key);
+        rehashStep(hash);
 
-        while (temp != null) {
-            if (temp.getKey().equals(key)) {
-                return true;
-            } else {
-                temp = temp.getNext();
-            }
+        TableEntry<K, V> entry = findEntry(key, hash);
+        if (this.stats != null) {
+            this.stats.recordGet(entry != null, countProbes(key, hash));
         }
 
-        return false;
+        return entry != null;
     }
 
 
@@ -199,7 +581,24 @@ public class SimpleHashtable<K, V> {
      * @return true if value is found in table
      */
     public boolean containsValue(V value) {
-        for (TableEntry<K, V> temp : this.table) {
+        if (this.valueIndex != null) {
+            return this.valueIndex.containsKey(value);
+        }
+
+        return containsValue(this.table, value)
+                || (this.oldTable != null && containsValue(this.oldTable, value));
+    }
+
+
+    private static <K, V> boolean containsValue(TableEntry<K, V>[] slots, V value) {
+        for (TableEntry<K, V> temp : slots) {
+            if (temp instanceof TreeBin) {
+                if (((TreeBin<K, V>) temp).containsValue(value)) {
+                    return true;
+                }
+                continue;
+            }
+
             while (temp != null) {
                 if (temp.getValue().equals(value)) {
                     return true;
@@ -219,106 +618,933 @@ public class SimpleHashtable<K, V> {
      * @param key key
      */
     public void remove(K key) {
-        if (key == null) {
-            return;
+        if (removeKey(key)) {
+            shrinkIfNeeded();
+        }
+    }
+
+
+    /**
+     * Remove (key, value) pair from table, without shrinking it.
+     *
+     * @param key key
+     * @return true if pair was removed
+     */
+    private boolean removeKey(K key) {
+        return key != null && removeHashed(key, hash(key));
+    }
+
+
+    private boolean removeHashed(K key, int hash) {
+        rehashStep(hash);
+
+        if (this.valueIndex != null) {
+            TableEntry<K, V> entry = findEntry(key, hash);
+            if (entry != null) {
+                unindexValue(key, entry.getValue());
+            }
         }
 
-        int slotIndex = getSlotIndex(key);
+        int slotIndex = getSlotIndex(hash, this.table.length);
         TableEntry<K, V> temp = this.table[slotIndex];
 
         /* key does not exist */
         if (temp == null) {
-            return;
+            return false;
         }
 
-        /* we are lucky, it is the first one */
-        if (temp.getKey().equals(key)) {
+        if (temp instanceof TreeBin) {
+            TreeBin<K, V> tree = (TreeBin<K, V>) temp;
+            if (!tree.remove(key)) {
+                return false;
+            }
+            if (tree.size() <= UNTREEIFY_THRESHOLD) {
+                this.table[slotIndex] = tree.toChain();
+            }
+        } else if (temp.hash == hash && temp.getKey().equals(key)) {
+            /* we are lucky, it is the first one */
             this.table[slotIndex] = temp.getNext();
-            this.size--;
-            return;
-        }
-
-        /* we are not lucky, have to loop through this slot */
-        while (temp.getNext() != null && !temp.getNext().getKey().equals(key)) {
-            temp = temp.getNext();
-        }
-        if (temp.getNext() != null && temp.getNext().getKey().equals(key)) {
+        } else {
+            /* we are not lucky, have to loop through this slot */
+            while (temp.getNext() != null
+                    && !(temp.getNext().hash == hash && temp.getNext().getKey().equals(key))) {
+                temp = temp.getNext();
+            }
+            if (temp.getNext() == null) {
+                return false;
+            }
             temp.setNext(temp.getNext().getNext());
-            this.size--;
         }
+
+        this.size--;
+        this.modCount++;
+        return true;
     }
 
 
     /**
-     * Return true if table is empty,
-     * otherwise return false.
+     * Make room for expectedSize pairs, so table does not have to grow
+     * while they are added.
+     * Table is resized at most once, and the resize is incremental as usual.
      *
-     * @return true if table is empty
+     * @param expectedSize expected total number of pairs
      */
-    public boolean isEmpty() {
-        return this.size == 0;
+    public void ensureCapacity(int expectedSize) {
+        long wantedSlots = Math.min(1 << 30, (long) Math.ceil(expectedSize / this.loadFactor));
+        int numberOfSlots = calculateTableSize((int) wantedSlots);
+
+        if (numberOfSlots > this.table.length) {
+            resize(numberOfSlots);
+        }
     }
 
 
     /**
-     * Return nice visual representation of the table.
+     * Calculate hashes of keys[from, to) and sort their offsets by slot index,
+     * so batch visits slots in table order.
+     * Null keys are skipped.
      *
-     * @return whole table in one String
+     * @return number of sorted keys in batchOrder
      */
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-
-        for (int i = 0; i < this.table.length; i++) {
-            TableEntry<K, V> temp = this.table[i];
+    private int orderBySlot(K[] keys, int from, int to) {
+        if (this.batchOrder == null) {
+            this.batchOrder = new long[BATCH_SIZE];
+            this.batchHashes = new int[BATCH_SIZE];
+        }
 
-            if (temp != null) {
-                sb.append(i)
-                        .append(") ")
-                        .append(temp.toString())
-                        .append("\n");
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (keys[i] != null) {
+                int hash = hash(keys[i]);
+                this.batchHashes[i - from] = hash;
+                this.batchOrder[count++] = ((long) getSlotIndex(hash, this.table.length) << 32) | (i - from);
             }
         }
 
-        return sb.toString();
+        Arrays.sort(this.batchOrder, 0, count);
+        return count;
     }
 
 
     /**
-     * Helper class, represents one slot in hash table.
+     * Store keys[i], values[i] pairs in table.
      * <p>
-     * TableEntry<K, V> next points to next slot in case of overflow,
-     * otherwise it is equal to null.
+     * Table is sized for all of them up front,
+     * and keys are stored in slot order.
      *
-     * @param <K> key type
-     * @param <V> value type
+     * @param keys   keys, null keys are skipped
+     * @param values values, same length as keys
      */
-    private static class TableEntry<K, V> {
-
+    public void putAll(K[] keys, V[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Keys and values must be of the same length");
+        }
 
-        private final K key;
-        private V value;
-        private TableEntry<K, V> next = null;
+        ensureCapacity(this.size + keys.length);
 
+        for (int from = 0; from < keys.length; from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, keys.length);
+            int count = orderBySlot(keys, from, to);
 
-        public TableEntry(K key, V value) {
+            for (int j = 0; j < count; j++) {
+                int offset = (int) this.batchOrder[j];
+                putHashed(keys[from + offset], this.batchHashes[offset], values[from + offset]);
+            }
+        }
+    }
+
+
+    /**
+     * Store every pair of map in table.
+     * Table is sized for all of them up front.
+     *
+     * @param map pairs to store
+     */
+    public void putAll(Map<? extends K, ? extends V> map) {
+        ensureCapacity(this.size + map.size());
+
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+
+    /**
+     * Look up all keys at once, value of keys[i] is written to out[i],
+     * or null if key is not in table.
+     * <p>
+     * Keys are looked up in slot order, and nothing is allocated.
+     *
+     * @param keys keys
+     * @param out  array for values, at least as long as keys
+     * @return number of keys found
+     */
+    public int getAll(K[] keys, V[] out) {
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output array is shorter than keys array");
+        }
+
+        int found = 0;
+        for (int from = 0; from < keys.length; from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, keys.length);
+            Arrays.fill(out, from, to, null);
+            int count = orderBySlot(keys, from, to);
+
+            for (int j = 0; j < count; j++) {
+                int offset = (int) this.batchOrder[j];
+                int hash = this.batchHashes[offset];
+                rehashStep(hash);
+
+                TableEntry<K, V> entry = findEntry(keys[from + offset], hash);
+                if (this.stats != null) {
+                    this.stats.recordGet(entry != null, countProbes(keys[from + offset], hash));
+                }
+                if (entry != null) {
+                    out[from + offset] = entry.getValue();
+                    found++;
+                }
+            }
+        }
+
+        return found;
+    }
+
+
+    /**
+     * Remove all keys at once, in slot order.
+     * Table is checked for shrinking only once, at the end.
+     *
+     * @param keys keys
+     * @return number of pairs removed
+     */
+    public int removeAll(K[] keys) {
+        int removed = 0;
+        for (int from = 0; from < keys.length; from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, keys.length);
+            int count = orderBySlot(keys, from, to);
+
+            for (int j = 0; j < count; j++) {
+                int offset = (int) this.batchOrder[j];
+                if (removeHashed(keys[from + offset], this.batchHashes[offset])) {
+                    removed++;
+                }
+            }
+        }
+
+        if (removed > 0) {
+            shrinkIfNeeded();
+        }
+        return removed;
+    }
+
+
+    /**
+     * Return true if table is empty,
+     * otherwise return false.
+     *
+     * @return true if table is empty
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+
+    /**
+     * Call action for every (key, value) pair in table.
+     *
+     * @param action action
+     * @throws ConcurrentModificationException if action changes the table
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        finishRehash();
+        int expectedModCount = this.modCount;
+
+        for (TableEntry<K, V> temp : this.table) {
+            if (temp instanceof TreeBin) {
+                for (TableEntry<K, V> entry : ((TreeBin<K, V>) temp).entryList()) {
+                    action.accept(entry.getKey(), entry.getValue());
+                }
+            } else {
+                for (; temp != null; temp = temp.getNext()) {
+                    action.accept(temp.getKey(), temp.getValue());
+                }
+            }
+
+            if (this.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+
+    /**
+     * Return iterator over all (key, value) pairs in table.
+     *
+     * @return fail-fast iterator
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return entrySet().iterator();
+    }
+
+
+    /**
+     * Return set view of keys in table.
+     * Removing a key from the view removes its pair from the table.
+     *
+     * @return key set view
+     */
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+
+            @Override
+            public Iterator<K> iterator() {
+                return new TableIterator<>(TableEntry::getKey);
+            }
+
+            @Override
+            public Spliterator<K> spliterator() {
+                return newSpliterator(TableEntry::getKey, Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+
+            @Override
+            public int size() {
+                return SimpleHashtable.this.size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean contains(Object o) {
+                return containsKey((K) o);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean remove(Object o) {
+                return removeKey((K) o);
+            }
+
+        };
+    }
+
+
+    /**
+     * Return collection view of values in table.
+     *
+     * @return values view
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+
+            @Override
+            public Iterator<V> iterator() {
+                return new TableIterator<>(TableEntry::getValue);
+            }
+
+            @Override
+            public Spliterator<V> spliterator() {
+                return newSpliterator(TableEntry::getValue, 0);
+            }
+
+            @Override
+            public int size() {
+                return SimpleHashtable.this.size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean contains(Object o) {
+                return containsValue((V) o);
+            }
+
+        };
+    }
+
+
+    /**
+     * Return set view of (key, value) pairs in table.
+     * Setting value of an entry updates the table.
+     *
+     * @return entry set view
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new TableIterator<>(SimpleHashtable.this::exposeEntry);
+            }
+
+            @Override
+            public Spliterator<Map.Entry<K, V>> spliterator() {
+                return newSpliterator(SimpleHashtable.this::exposeEntry,
+                        Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+
+            @Override
+            public int size() {
+                return SimpleHashtable.this.size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry) || ((Map.Entry<?, ?>) o).getKey() == null) {
+                    return false;
+                }
+
+                Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+                K key = (K) other.getKey();
+                int hash = hash(key);
+                rehashStep(hash);
+
+                TableEntry<K, V> entry = findEntry(key, hash);
+                return entry != null && Objects.equals(entry.getValue(), other.getValue());
+            }
+
+        };
+    }
+
+
+    /**
+     * Copy entries of one slot into a list,
+     * so iteration over them is not disturbed by removal.
+     *
+     * @param temp first entry of slot
+     * @param out  list to fill
+     */
+    private static <K, V> void collectSlot(TableEntry<K, V> temp, List<TableEntry<K, V>> out) {
+        out.clear();
+
+        if (temp instanceof TreeBin) {
+            out.addAll(((TreeBin<K, V>) temp).entryList());
+            return;
+        }
+
+        for (; temp != null; temp = temp.getNext()) {
+            out.add(temp);
+        }
+    }
+
+
+    private <T> Spliterator<T> newSpliterator(Function<TableEntry<K, V>, T> mapper, int characteristics) {
+        finishRehash();
+        return new SlotSpliterator<>(this.table, 0, this.table.length, this.size,
+                characteristics | Spliterator.SIZED | Spliterator.SUBSIZED, mapper);
+    }
+
+
+    /**
+     * Write snapshot of table to file, which can be served later by MappedHashtable.open().
+     *
+     * @param file            snapshot file
+     * @param keySerializer   key serializer
+     * @param valueSerializer value serializer
+     * @throws IOException if file can not be written
+     */
+    public void writeSnapshot(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer)
+            throws IOException {
+        MappedHashtable.write(file, this.size, this::forEach, keySerializer, valueSerializer);
+    }
+
+
+    /**
+     * Start keeping keys of every value, so containsValue() is a single lookup
+     * and keysForValue() costs only as much as number of keys it returns.
+     * Index is built from current pairs and kept up to date by every change.
+     */
+    public void enableValueIndex() {
+        this.valueIndex = new HashMap<>();
+        forEach(this::indexValue);
+    }
+
+
+    /**
+     * Drop value index, so changes do not pay for keeping it.
+     */
+    public void disableValueIndex() {
+        this.valueIndex = null;
+    }
+
+
+    private void indexValue(K key, V value) {
+        this.valueIndex.computeIfAbsent(value, v -> new HashSet<>()).add(key);
+    }
+
+
+    private void unindexValue(K key, V value) {
+        Set<K> keys = this.valueIndex.get(value);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            this.valueIndex.remove(value);
+        }
+    }
+
+
+    /**
+     * Return keys which are mapped to value.
+     * Without value index whole table is scanned.
+     *
+     * @param value value
+     * @return unmodifiable copy of keys, empty if value is not in table
+     */
+    public Set<K> keysForValue(V value) {
+        if (this.valueIndex != null) {
+            Set<K> keys = this.valueIndex.get(value);
+            return keys == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(keys));
+        }
+
+        Set<K> keys = new HashSet<>();
+        forEach((k, v) -> {
+            if (Objects.equals(v, value)) {
+                keys.add(k);
+            }
+        });
+        return Collections.unmodifiableSet(keys);
+    }
+
+
+    /**
+     * Entry handed out by entrySet().
+     * While value index is enabled, setValue() must update it too.
+     */
+    private Map.Entry<K, V> exposeEntry(TableEntry<K, V> entry) {
+        return this.valueIndex == null ? entry : new IndexedEntry(entry);
+    }
+
+
+    /**
+     * Copy table into an immutable FrozenHashtable,
+     * which finds every key in a single slot and can be shared between threads.
+     * Later changes of this table are not seen by the copy.
+     *
+     * @return frozen copy of table
+     */
+    public FrozenHashtable<K, V> freeze() {
+        return new FrozenHashtable<>(this.size, this::forEach);
+    }
+
+
+    /**
+     * Start counting operations for stats().
+     * Counters start from zero.
+     */
+    public void enableStats() {
+        this.stats = new StatsRecorder();
+    }
+
+
+    /**
+     * Stop counting operations, so they cost nothing extra again.
+     */
+    public void disableStats() {
+        this.stats = null;
+    }
+
+
+    /**
+     * Count entries which lookup of key looks at, same walk as findEntry().
+     * Tree is not walked, its depth is estimated as log2 of its size.
+     *
+     * @param key  key
+     * @param hash hash of key
+     * @return number of probes
+     */
+    private int countProbes(K key, int hash) {
+        TableEntry<K, V> temp = this.table[getSlotIndex(hash, this.table.length)];
+
+        if (temp instanceof TreeBin) {
+            return 32 - Integer.numberOfLeadingZeros(((TreeBin<K, V>) temp).size());
+        }
+
+        int probes = 0;
+        while (temp != null) {
+            probes++;
+            if (temp.hash == hash && temp.getKey().equals(key)) {
+                break;
+            }
+            temp = temp.getNext();
+        }
+
+        return probes;
+    }
+
+
+    /**
+     * Return snapshot of table statistics.
+     * <p>
+     * Chain lengths are computed by walking the whole table,
+     * operation counters are zero unless statistics are enabled.
+     *
+     * @return statistics snapshot
+     */
+    public HashtableStats stats() {
+        long[] histogram = new long[TREEIFY_THRESHOLD + 1];
+        int maxChainLength = 0;
+        int treeBinCount = 0;
+
+        for (TableEntry<K, V>[] slots : Arrays.asList(this.table, this.oldTable)) {
+            if (slots == null) {
+                continue;
+            }
+
+            for (TableEntry<K, V> temp : slots) {
+                int chainLength = 0;
+                if (temp instanceof TreeBin) {
+                    chainLength = ((TreeBin<K, V>) temp).size();
+                    treeBinCount++;
+                } else {
+                    for (; temp != null; temp = temp.getNext()) {
+                        chainLength++;
+                    }
+                }
+
+                histogram[Math.min(chainLength, TREEIFY_THRESHOLD)]++;
+                maxChainLength = Math.max(maxChainLength, chainLength);
+            }
+        }
+
+        StatsRecorder recorder = this.stats == null ? new StatsRecorder() : this.stats;
+        return new HashtableStats(this.size, this.table.length, histogram, maxChainLength, treeBinCount,
+                recorder.getCount, recorder.hitCount, recorder.putCount, recorder.getProbes, recorder.putProbes,
+                recorder.maxProbeLength, recorder.rehashCount, recorder.rehashTimeNanos);
+    }
+
+
+    /**
+     * Register table statistics with platform MBean server,
+     * as hashtable:type=SimpleHashtable,name=name.
+     * <p>
+     * Every JMX read takes a fresh stats() snapshot.
+     * Table is not thread safe, so figures read while it is being changed are approximate.
+     *
+     * @param name name of this table
+     * @return name under which MBean was registered, to unregister it later
+     * @throws JMException if MBean can not be registered
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        HashtableStatsMXBean mbean = (HashtableStatsMXBean) Proxy.newProxyInstance(
+                HashtableStatsMXBean.class.getClassLoader(),
+                new Class<?>[]{HashtableStatsMXBean.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(stats(), args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+
+        ObjectName objectName = new ObjectName("hashtable:type=SimpleHashtable,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+        return objectName;
+    }
+
+
+    /**
+     * Return nice visual representation of the table.
+     *
+     * @return whole table in one String
+     */
+    @Override
+    public String toString() {
+        finishRehash();
+
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < this.table.length; i++) {
+            TableEntry<K, V> temp = this.table[i];
+
+            if (temp != null) {
+                sb.append(i)
+                        .append(") ")
+                        .append(temp.toString());
+
+                /* walk the chain here, not recursively, so long chains can not overflow the stack */
+                while (!(temp instanceof TreeBin) && temp.getNext() != null) {
+                    temp = temp.getNext();
+                    sb.append(" -> ")
+                            .append(temp.toString());
+                }
+
+                sb.append("\n");
+            }
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Fail-fast iterator over table, maps every entry to key, value or entry itself.
+     * <p>
+     * Entries of current slot are copied before they are returned,
+     * so remove() can unlink the last one without breaking the walk.
+     *
+     * @param <T> element type
+     */
+    private class TableIterator<T> implements Iterator<T> {
+
+
+        private final Function<TableEntry<K, V>, T> mapper;
+        private final TableEntry<K, V>[] slots;
+        private final List<TableEntry<K, V>> slotEntries = new ArrayList<>();
+
+        private int slotIndex = 0;
+        private int position = 0;
+        private TableEntry<K, V> last = null;
+        private int expectedModCount;
+
+
+        TableIterator(Function<TableEntry<K, V>, T> mapper) {
+            finishRehash();
+            this.mapper = mapper;
+            this.slots = table;
+            this.expectedModCount = modCount;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            while (this.position == this.slotEntries.size() && this.slotIndex < this.slots.length) {
+                collectSlot(this.slots[this.slotIndex++], this.slotEntries);
+                this.position = 0;
+            }
+
+            return this.position < this.slotEntries.size();
+        }
+
+
+        @Override
+        public T next() {
+            if (modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            this.last = this.slotEntries.get(this.position++);
+            return this.mapper.apply(this.last);
+        }
+
+
+        @Override
+        public void remove() {
+            if (this.last == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            /* no shrinking here, iterator keeps walking the same slots */
+            removeKey(this.last.getKey());
+            this.last = null;
+            this.expectedModCount = modCount;
+        }
+
+
+    }
+
+
+    /**
+     * Spliterator over a range of slots.
+     * <p>
+     * Splitting halves the range of slots, which costs nothing,
+     * but size of each half is only an estimate.
+     *
+     * @param <T> element type
+     */
+    private final class SlotSpliterator<T> implements Spliterator<T> {
+
+
+        private final TableEntry<K, V>[] slots;
+        private final Function<TableEntry<K, V>, T> mapper;
+        private final List<TableEntry<K, V>> slotEntries = new ArrayList<>();
+        private final int expectedModCount;
+
+        private int slotIndex;
+        private final int fence;
+        private long estimate;
+        private int characteristics;
+        private int position = 0;
+
+
+        SlotSpliterator(TableEntry<K, V>[] slots, int origin, int fence, long estimate,
+                        int characteristics, Function<TableEntry<K, V>, T> mapper) {
+            this.slots = slots;
+            this.slotIndex = origin;
+            this.fence = fence;
+            this.estimate = estimate;
+            this.characteristics = characteristics;
+            this.mapper = mapper;
+            this.expectedModCount = modCount;
+        }
+
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (this.position == this.slotEntries.size() && this.slotIndex < this.fence) {
+                collectSlot(this.slots[this.slotIndex++], this.slotEntries);
+                this.position = 0;
+            }
+
+            if (modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (this.position == this.slotEntries.size()) {
+                return false;
+            }
+
+            action.accept(this.mapper.apply(this.slotEntries.get(this.position++)));
+            return true;
+        }
+
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int middle = (this.slotIndex + this.fence) >>> 1;
+
+            /* split only between slots, not in the middle of one */
+            if (middle <= this.slotIndex || this.position < this.slotEntries.size()) {
+                return null;
+            }
+
+            this.estimate >>>= 1;
+            this.characteristics &= ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+
+            SlotSpliterator<T> prefix = new SlotSpliterator<>(this.slots, this.slotIndex, middle,
+                    this.estimate, this.characteristics, this.mapper);
+            this.slotIndex = middle;
+            return prefix;
+        }
+
+
+        @Override
+        public long estimateSize() {
+            return this.estimate;
+        }
+
+
+        @Override
+        public int characteristics() {
+            return this.characteristics;
+        }
+
+
+    }
+
+
+    /**
+     * Entry of entrySet() which keeps value index up to date on setValue().
+     */
+    @SuppressWarnings("serial")
+    private final class IndexedEntry extends AbstractMap.SimpleEntry<K, V> {
+
+
+        private final TableEntry<K, V> entry;
+
+
+        IndexedEntry(TableEntry<K, V> entry) {
+            super(entry);
+            this.entry = entry;
+        }
+
+
+        @Override
+        public V setValue(V value) {
+            super.setValue(value);
+            V oldValue = this.entry.setValue(value);
+
+            if (valueIndex != null) {
+                unindexValue(getKey(), oldValue);
+                indexValue(getKey(), value);
+            }
+
+            return oldValue;
+        }
+
+
+    }
+
+
+    /**
+     * Operation counters behind stats().
+     */
+    private static final class StatsRecorder {
+
+
+        private long getCount;
+        private long hitCount;
+        private long putCount;
+        private long getProbes;
+        private long putProbes;
+        private int maxProbeLength;
+        private long rehashCount;
+        private long rehashTimeNanos;
+
+
+        void recordGet(boolean hit, int probes) {
+            this.getCount++;
+            if (hit) {
+                this.hitCount++;
+            }
+            this.getProbes += probes;
+            this.maxProbeLength = Math.max(this.maxProbeLength, probes);
+        }
+
+
+        void recordPut(int probes) {
+            this.putCount++;
+            this.putProbes += probes;
+            this.maxProbeLength = Math.max(this.maxProbeLength, probes);
+        }
+
+
+    }
+
+
+    /**
+     * Helper class, represents one slot in hash table.
+     * <p>
+     * TableEntry<K, V> next points to next slot in case of overflow,
+     * otherwise it is equal to null.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     */
+    private static class TableEntry<K, V> implements Map.Entry<K, V> {
+
+
+        private final int hash;
+        private final K key;
+        private V value;
+        private TableEntry<K, V> next = null;
+
+
+        public TableEntry(int hash, K key, V value) {
+            this.hash = hash;
             this.key = key;
             this.value = value;
         }
 
 
+        @Override
         public K getKey() {
             return key;
         }
 
 
+        @Override
         public V getValue() {
             return value;
         }
 
 
-        public void setValue(V value) {
+        @Override
+        public V setValue(V value) {
+            V oldValue = this.value;
             this.value = value;
+            return oldValue;
         }
 
 
@@ -332,24 +1558,194 @@ public class SimpleHashtable<K, V> {
         }
 
 
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return Objects.equals(this.key, other.getKey()) && Objects.equals(this.value, other.getValue());
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.key) ^ Objects.hashCode(this.value);
+        }
+
+
         /**
-         * Return nice visual representation of slot and its linked slots.
+         * Return nice visual representation of this slot, without linked slots.
          *
-         * @return whole slot in one String
+         * @return slot in one String
          */
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
 
             sb.append("(")
-                    .append(this.key.toString())
+                    .append(this.key)
                     .append(" : ")
-                    .append(this.value.toString())
+                    .append(this.value)
                     .append(")");
 
-            if (next != null) {
-                sb.append(" -> ")
-                        .append(next.toString());
+            return sb.toString();
+        }
+
+
+    }
+
+
+    /**
+     * Slot converted into a tree, used instead of a long chain.
+     * <p>
+     * Entries are kept in a red-black tree (TreeMap) ordered by hashCode() of their keys,
+     * and keys with equal hashCode() by compareTo(), so keys must be of one class.
+     * Keys which compareTo() finds equal, but equals() does not (like BigDecimal 1.0 and 1.00),
+     * share one node of the tree, are chained through their next pointers there
+     * and are told apart by equals(), just like in a chain.
+     * Other next pointers of entries in the tree are not used.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     */
+    private static final class TreeBin<K, V> extends TableEntry<K, V> {
+
+
+        private final Class<?> keyClass;
+
+        /* first entry of every group of keys which compare as equal */
+        private final TreeMap<K, TableEntry<K, V>> entries;
+        private int size;
+
+
+        @SuppressWarnings("unchecked")
+        TreeBin(Class<?> keyClass) {
+            super(0, null, null);
+            this.keyClass = keyClass;
+            this.entries = new TreeMap<>((Comparator<K>) (a, b) -> {
+                int order = Integer.compare(a.hashCode(), b.hashCode());
+                return order != 0 ? order : ((Comparable<Object>) a).compareTo(b);
+            });
+        }
+
+
+        boolean accepts(Object key) {
+            return key.getClass() == this.keyClass;
+        }
+
+
+        int size() {
+            return this.size;
+        }
+
+
+        TableEntry<K, V> find(K key) {
+            if (!accepts(key)) {
+                return null;
+            }
+
+            for (TableEntry<K, V> entry = this.entries.get(key); entry != null; entry = entry.getNext()) {
+                if (entry.getKey().equals(key)) {
+                    return entry;
+                }
+            }
+
+            return null;
+        }
+
+
+        /**
+         * Add entry whose key is not in the tree yet.
+         */
+        void add(TableEntry<K, V> entry) {
+            /* removed first, so node is keyed by the first entry of its group */
+            entry.setNext(this.entries.remove(entry.getKey()));
+            this.entries.put(entry.getKey(), entry);
+            this.size++;
+        }
+
+
+        boolean remove(K key) {
+            if (!accepts(key)) {
+                return false;
+            }
+
+            TableEntry<K, V> previous = null;
+            for (TableEntry<K, V> entry = this.entries.get(key); entry != null; entry = entry.getNext()) {
+                if (entry.getKey().equals(key)) {
+                    if (previous != null) {
+                        previous.setNext(entry.getNext());
+                    } else {
+                        this.entries.remove(key);
+                        if (entry.getNext() != null) {
+                            this.entries.put(entry.getNext().getKey(), entry.getNext());
+                        }
+                    }
+                    this.size--;
+                    return true;
+                }
+                previous = entry;
+            }
+
+            return false;
+        }
+
+
+        /**
+         * Return all entries of the tree, in tree order.
+         */
+        List<TableEntry<K, V>> entryList() {
+            List<TableEntry<K, V>> list = new ArrayList<>(this.size);
+            for (TableEntry<K, V> first : this.entries.values()) {
+                for (TableEntry<K, V> entry = first; entry != null; entry = entry.getNext()) {
+                    list.add(entry);
+                }
+            }
+
+            return list;
+        }
+
+
+        boolean containsValue(V value) {
+            for (TableEntry<K, V> entry : entryList()) {
+                if (entry.getValue().equals(value)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+
+        /**
+         * Link entries of the tree into a chain.
+         *
+         * @return first entry of chain, or null if tree is empty
+         */
+        TableEntry<K, V> toChain() {
+            List<TableEntry<K, V>> list = entryList();
+            TableEntry<K, V> first = null;
+            for (int i = list.size() - 1; i >= 0; i--) {
+                list.get(i).setNext(first);
+                first = list.get(i);
+            }
+
+            return first;
+        }
+
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("tree");
+
+            for (TableEntry<K, V> entry : entryList()) {
+                sb.append(" (")
+                        .append(entry.getKey())
+                        .append(" : ")
+                        .append(entry.getValue())
+                        .append(")");
             }
 
             return sb.toString();
@@ -0,0 +1,236 @@
+package hashtable;
+
+/**
+ * Frequency aware eviction policy, in the style of W-TinyLFU.
+ * <p>
+ * Keys are kept in three access ordered regions:
+ * <ul>
+ * <li>window - new keys, about 1% of maximum weight</li>
+ * <li>probation - keys which left the window, or were demoted from protected</li>
+ * <li>protected - keys which were read again while on probation, about 80% of the rest</li>
+ * </ul>
+ * When cache is full, oldest window key competes with oldest probation key.
+ * Key which was used more often recently (by a small count-min sketch) stays,
+ * so a burst of one-off keys can not flush out popular ones.
+ *
+ * @param <K> key type
+ * @author sskender
+ */
+public class TinyLfuPolicy<K> implements EvictionPolicy<K> {
+
+
+    private final SimpleHashtable<K, AccessOrderList.Node<K>> nodes = new SimpleHashtable<>();
+
+    private final AccessOrderList<K> window = new AccessOrderList<>();
+    private final AccessOrderList<K> probation = new AccessOrderList<>();
+    private final AccessOrderList<K> protectedRegion = new AccessOrderList<>();
+
+    private final long maximumWeight;
+    private final long maximumWindowWeight;
+    private final long maximumProtectedWeight;
+
+    private final FrequencySketch sketch;
+
+
+    /**
+     * Create policy for cache of given maximum weight.
+     *
+     * @param maximumWeight maximum total weight of cache
+     */
+    public TinyLfuPolicy(long maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight can not be less than zero");
+        }
+
+        this.maximumWeight = maximumWeight;
+        this.maximumWindowWeight = Math.max(1, maximumWeight / 100);
+        this.maximumProtectedWeight = (maximumWeight - this.maximumWindowWeight) * 8 / 10;
+        this.sketch = new FrequencySketch(maximumWeight);
+    }
+
+
+    private long totalWeight() {
+        return this.window.weight() + this.probation.weight() + this.protectedRegion.weight();
+    }
+
+
+    @Override
+    public void onInsert(K key, int weight) {
+        this.sketch.increment(key);
+
+        AccessOrderList.Node<K> node = new AccessOrderList.Node<>(key, weight);
+        this.nodes.put(key, node);
+        this.window.addLast(node);
+
+        /* while there is room, window overflow goes to probation without a contest */
+        while (this.window.weight() > this.maximumWindowWeight
+                && totalWeight() <= this.maximumWeight
+                && this.window.head() != node) {
+            AccessOrderList.Node<K> oldest = this.window.head();
+            this.window.remove(oldest);
+            this.probation.addLast(oldest);
+        }
+    }
+
+
+    @Override
+    public void onUpdate(K key, int weight) {
+        AccessOrderList.Node<K> node = this.nodes.get(key);
+        if (node != null) {
+            node.list.setWeight(node, weight);
+            onAccess(key);
+        }
+    }
+
+
+    @Override
+    public void onAccess(K key) {
+        this.sketch.increment(key);
+
+        AccessOrderList.Node<K> node = this.nodes.get(key);
+        if (node == null) {
+            return;
+        }
+
+        if (node.list == this.probation) {
+            /* read again while on probation, promote it */
+            this.probation.remove(node);
+            this.protectedRegion.addLast(node);
+
+            while (this.protectedRegion.weight() > this.maximumProtectedWeight
+                    && this.protectedRegion.head() != node) {
+                AccessOrderList.Node<K> demoted = this.protectedRegion.head();
+                this.protectedRegion.remove(demoted);
+                this.probation.addLast(demoted);
+            }
+        } else {
+            node.list.moveToLast(node);
+        }
+    }
+
+
+    @Override
+    public void onRemove(K key) {
+        AccessOrderList.Node<K> node = this.nodes.get(key);
+        if (node != null) {
+            this.nodes.remove(key);
+            node.list.remove(node);
+        }
+    }
+
+
+    @Override
+    public K evict() {
+        AccessOrderList.Node<K> candidate = this.window.weight() > this.maximumWindowWeight
+                ? this.window.head()
+                : null;
+        AccessOrderList.Node<K> victim = !this.probation.isEmpty()
+                ? this.probation.head()
+                : this.protectedRegion.head();
+
+        AccessOrderList.Node<K> evicted;
+        if (candidate == null) {
+            evicted = victim != null ? victim : this.window.head();
+        } else if (victim == null) {
+            evicted = candidate;
+        } else if (this.sketch.frequency(candidate.key) > this.sketch.frequency(victim.key)) {
+            /* candidate wins, it moves to probation in place of the victim */
+            this.window.remove(candidate);
+            this.probation.addLast(candidate);
+            evicted = victim;
+        } else {
+            evicted = candidate;
+        }
+
+        if (evicted == null) {
+            return null;
+        }
+
+        this.nodes.remove(evicted.key);
+        evicted.list.remove(evicted);
+        return evicted.key;
+    }
+
+
+    /**
+     * Count-min sketch of 4 rows with counters which saturate at 15.
+     * <p>
+     * After a number of increments proportional to its width,
+     * all counters are halved, so old popularity fades out.
+     */
+    private static final class FrequencySketch {
+
+
+        private static final int ROWS = 4;
+        private static final int MAXIMUM_WIDTH = 1 << 20;
+        private static final int[] SEEDS = {0x97cb3127, 0xa8b5d4c1, 0x9e3779b9, 0x7f4a7c15};
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+
+        FrequencySketch(long expectedKeys) {
+            int width = 16;
+            while (width < expectedKeys && width < MAXIMUM_WIDTH) {
+                width *= 2;
+            }
+
+            this.counters = new byte[ROWS][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 15)) & this.mask;
+        }
+
+
+        private static int spread(Object key) {
+            int h = key.hashCode();
+            return h ^ (h >>> 16);
+        }
+
+
+        int frequency(Object key) {
+            int hash = spread(key);
+            int frequency = Integer.MAX_VALUE;
+            for (int row = 0; row < ROWS; row++) {
+                frequency = Math.min(frequency, this.counters[row][index(hash, row)]);
+            }
+            return frequency;
+        }
+
+
+        void increment(Object key) {
+            int hash = spread(key);
+            for (int row = 0; row < ROWS; row++) {
+                int i = index(hash, row);
+                if (this.counters[row][i] < 15) {
+                    this.counters[row][i]++;
+                }
+            }
+
+            if (++this.additions >= this.sampleSize) {
+                reset();
+            }
+        }
+
+
+        private void reset() {
+            for (byte[] row : this.counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            this.additions /= 2;
+        }
+
+
+    }
+
+
+}
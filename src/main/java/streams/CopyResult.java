@@ -0,0 +1,39 @@
+package streams;
+
+import java.time.Duration;
+
+
+/**
+ * Outcome of one MyBuffer copy.
+ */
+public final class CopyResult {
+
+    private final long bytesCopied;
+    private final long elapsedNanos;
+
+    public CopyResult(long bytesCopied, long elapsedNanos) {
+        this.bytesCopied = bytesCopied;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getBytesCopied() {
+        return bytesCopied;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    /**
+     * Average throughput of whole copy, including time spent waiting for either end.
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesCopied * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return bytesCopied + " bytes in " + elapsedNanos / 1_000_000 + " ms";
+    }
+
+}
@@ -1,37 +1,433 @@
 package streams;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
+/**
+ * Copy everything from input to output, until input ends.
+ * <p>
+ * When both ends are channels (files, sockets, pipes), bytes do not pass through java heap:
+ * a regular file is sent with FileChannel.transferTo, which lets the kernel copy it
+ * (sendfile on Linux), anything else is copied through a direct buffer
+ * which each thread reuses.
+ * Streams of files are turned into their channels,
+ * other streams are copied through buffered streams.
+ * <p>
+ * Reads and writes can have a timeout, and throughput can be limited by a RateLimiter.
+ * A read or write which takes too long is stopped by closing its end from a watchdog thread,
+ * which wakes up sockets and channels blocked in it.
+ * Other streams may stay blocked, copy then fails as soon as they return.
+ * Both ends are closed when copy ends, also when it fails.
+ * <p>
+ * With more than one buffer (see setPipelineBuffers), a reader thread fills buffers
+ * while the calling thread writes those filled before, so reading and writing overlap
+ * and a copy between two devices runs at the speed of the slower one.
+ * Buffers go around between the two threads through bounded queues and are reused,
+ * so reader can get at most that many buffers ahead of writer.
+ */
 public class MyBuffer {
 
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> DIRECT_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE));
+
+    // closes ends of copies which took too long, shared by all copies
+    private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "mybuffer-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // put by reader after last filled buffer
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    static {
+        // most timeouts are cancelled, do not keep them queued until they would have fired
+        WATCHDOG.setRemoveOnCancelPolicy(true);
+    }
+
     BufferedInputStream bis;
     BufferedOutputStream bos;
 
+    // set instead of streams when both ends are channels
+    ReadableByteChannel source;
+    WritableByteChannel target;
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private Duration readTimeout;
+    private Duration writeTimeout;
+    private RateLimiter rateLimiter;
+    private int pipelineBuffers = 1;
+
     public MyBuffer(InputStream is, OutputStream os) {
-        bis = new BufferedInputStream(is);
-        bos = new BufferedOutputStream(os);
+        if (is instanceof FileInputStream && os instanceof FileOutputStream) {
+            source = ((FileInputStream) is).getChannel();
+            target = ((FileOutputStream) os).getChannel();
+        } else {
+            bis = new BufferedInputStream(is);
+            bos = new BufferedOutputStream(os);
+        }
     }
 
-    public void run() {
-        try {
+    public MyBuffer(ReadableByteChannel source, WritableByteChannel target) {
+        this.source = source;
+        this.target = target;
+    }
 
-            byte[] buffer = new byte[8192];
+    /**
+     * Set largest number of bytes read and written at once.
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least one");
+        }
 
-            while (bis.available() > 0) {
-                int readSize = bis.read(buffer);
-                bos.write(buffer, 0, readSize);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Fail copy if a single read waits longer than readTimeout, null for no timeout.
+     */
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = checkTimeout(readTimeout);
+    }
+
+    /**
+     * Fail copy if a single write (or transfer of a file) waits longer than writeTimeout, null for no timeout.
+     */
+    public void setWriteTimeout(Duration writeTimeout) {
+        this.writeTimeout = checkTimeout(writeTimeout);
+    }
+
+    private static Duration checkTimeout(Duration timeout) {
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+
+        return timeout;
+    }
+
+    /**
+     * Limit throughput of copy, null for no limit.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Read on a separate thread while writing, through this many buffers of buffer size.
+     * One buffer, the default, reads and writes on the calling thread.
+     * Files sent with transferTo are copied by the kernel and are not pipelined.
+     */
+    public void setPipelineBuffers(int pipelineBuffers) {
+        if (pipelineBuffers < 1) {
+            throw new IllegalArgumentException("Number of buffers must be at least one");
+        }
+
+        this.pipelineBuffers = pipelineBuffers;
+    }
+
+    /**
+     * Copy until input ends, then close both ends.
+     *
+     * @throws InterruptedIOException if a read or write timed out
+     */
+    public CopyResult run() throws IOException {
+
+        long start = System.nanoTime();
+        long bytesCopied;
+
+        if (source != null) {
+            try (ReadableByteChannel in = source; WritableByteChannel out = target) {
+                bytesCopied = transfer(in, out);
+            }
+        } else {
+            try (InputStream in = bis; OutputStream out = bos) {
+                bytesCopied = pipelineBuffers == 1 ? copy(in, out) : pipeline(
+                        buffer -> {
+                            int readSize = (int) timed(readTimeout, in, "Read",
+                                    () -> in.read(buffer.array(), 0, buffer.capacity()));
+                            buffer.position(Math.max(readSize, 0));
+                            return readSize;
+                        },
+                        buffer -> timed(writeTimeout, out, "Write", () -> {
+                            out.write(buffer.array(), 0, buffer.limit());
+                            return buffer.limit();
+                        }),
+                        false);
+                timed(writeTimeout, out, "Write", () -> {
+                    out.flush();
+                    return 0;
+                });
+            }
+        }
+
+        return new CopyResult(bytesCopied, System.nanoTime() - start);
+    }
+
+    /**
+     * Copy streams until read returns end of stream.
+     * Read returning fewer bytes than asked, even none, is not the end.
+     */
+    private long copy(InputStream in, OutputStream out) throws IOException {
+
+        byte[] buffer = new byte[bufferSize];
+        long copied = 0;
+
+        while (true) {
+            int readSize = (int) timed(readTimeout, in, "Read", () -> in.read(buffer));
+            if (readSize < 0) {
+                return copied;
+            }
+
+            if (rateLimiter != null) {
+                rateLimiter.acquire(readSize);
+            }
+            timed(writeTimeout, out, "Write", () -> {
+                out.write(buffer, 0, readSize);
+                return readSize;
+            });
+            copied += readSize;
+        }
+    }
+
+    /**
+     * Return source if it is a file which transferTo can send from,
+     * or null for any other channel, also FIFOs and devices opened as files, which can not seek.
+     */
+    private static FileChannel seekableFile(ReadableByteChannel source) {
+
+        if (source instanceof FileChannel) {
+            try {
+                ((FileChannel) source).position();
+                return (FileChannel) source;
+            } catch (IOException e) {
+                // Illegal seek
             }
+        }
+
+        return null;
+    }
+
+    /**
+     * Copy source to target from their current positions until source ends.
+     * Channels have to be in blocking mode.
+     *
+     * @return number of bytes copied
+     */
+    private long transfer(ReadableByteChannel source, WritableByteChannel target) throws IOException {
 
-            bis.close();
+        long transferred = 0;
 
-            bos.flush();
-            bos.close();
+        FileChannel file = seekableFile(source);
+        if (file != null) {
+            long position = file.position();
+            long size = file.size();
 
+            // with a limit, send one buffer at a time so each can wait for its turn
+            long chunk = rateLimiter == null ? Long.MAX_VALUE : bufferSize;
+
+            // may send less than asked, and nothing at all if target can not take more
+            while (position < size) {
+                long from = position;
+                long sent = timed(writeTimeout, target, "Transfer",
+                        () -> file.transferTo(from, Math.min(chunk, size - from), target));
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                transferred += sent;
+
+                if (rateLimiter != null) {
+                    rateLimiter.acquire(sent);
+                }
+            }
+            file.position(position);
+        }
+
+        if (pipelineBuffers > 1 && file == null) {
+            return pipeline(
+                    buffer -> (int) timed(readTimeout, source, "Read", () -> source.read(buffer)),
+                    buffer -> {
+                        while (buffer.hasRemaining()) {
+                            timed(writeTimeout, target, "Write", () -> target.write(buffer));
+                        }
+                    },
+                    true);
+        }
+
+        // rest of a file which grew or could not be sent, or any other channel
+        ByteBuffer buffer = DIRECT_BUFFER.get();
+        if (buffer.capacity() < bufferSize) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            DIRECT_BUFFER.set(buffer);
+        }
+
+        while (true) {
+            buffer.clear().limit(bufferSize);
+            ByteBuffer readBuffer = buffer;
+            if (timed(readTimeout, source, "Read", () -> source.read(readBuffer)) < 0) {
+                return transferred;
+            }
+
+            buffer.flip();
+            if (rateLimiter != null) {
+                rateLimiter.acquire(buffer.remaining());
+            }
+            while (buffer.hasRemaining()) {
+                transferred += timed(writeTimeout, target, "Write", () -> target.write(readBuffer));
+            }
+        }
+    }
+
+    private interface BufferReader {
+        /**
+         * Read into buffer from its position, return -1 at end of input.
+         */
+        int read(ByteBuffer buffer) throws IOException;
+    }
+
+    private interface BufferWriter {
+        /**
+         * Write all bytes of buffer from position to limit.
+         */
+        void write(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * Read on a new thread and write on this one, until reader reaches end of input.
+     * If writing fails, reader is interrupted, and closing the ends afterwards
+     * wakes it up if it is blocked in a read.
+     *
+     * @return number of bytes written
+     */
+    private long pipeline(BufferReader reader, BufferWriter writer, boolean direct) throws IOException {
+
+        BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(pipelineBuffers);
+        // one more place for END, so reader never waits to finish
+        BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(pipelineBuffers + 1);
+        for (int i = 0; i < pipelineBuffers; i++) {
+            free.add(direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize));
+        }
+
+        // written before END is put, so it is seen after END is taken
+        Exception[] readFailure = new Exception[1];
+
+        Thread readerThread = new Thread(() -> {
+            try {
+                try {
+                    while (true) {
+                        ByteBuffer buffer = free.take();
+                        buffer.clear();
+                        if (reader.read(buffer) < 0) {
+                            break;
+                        }
+                        buffer.flip();
+                        filled.put(buffer);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    readFailure[0] = e;
+                }
+                filled.put(END);
+            } catch (InterruptedException e) {
+                // writer failed and takes no more buffers
+            }
+        }, "mybuffer-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        long copied = 0;
+        boolean finished = false;
+        try {
+            ByteBuffer buffer;
+            while ((buffer = filled.take()) != END) {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire(buffer.remaining());
+                }
+                copied += buffer.remaining();
+                writer.write(buffer);
+                free.add(buffer);
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for reader");
+        } finally {
+            if (!finished) {
+                readerThread.interrupt();
+            }
+        }
+
+        if (readFailure[0] instanceof IOException) {
+            throw (IOException) readFailure[0];
+        }
+        if (readFailure[0] != null) {
+            throw (RuntimeException) readFailure[0];
+        }
+        return copied;
+    }
+
+    private interface Operation {
+        long run() throws IOException;
+    }
+
+    /**
+     * Run operation, and close end if it does not finish in time.
+     * Operation which fails, or even succeeds, after its end was closed, ends with timeout.
+     */
+    private static long timed(Duration timeout, Closeable end, String name, Operation operation)
+            throws IOException {
+
+        if (timeout == null) {
+            return operation.run();
+        }
+
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> alarm = WATCHDOG.schedule(() -> {
+            expired.set(true);
+            try {
+                end.close();
+            } catch (IOException e) {
+                // copy fails with timeout either way
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+        long result;
+        try {
+            result = operation.run();
         } catch (IOException e) {
-            e.printStackTrace();
+            alarm.cancel(false);
+            if (expired.get()) {
+                throw timeout(name, timeout, e);
+            }
+            throw e;
+        }
+
+        // alarm already started, end is closed or about to be
+        if (!alarm.cancel(false)) {
+            throw timeout(name, timeout, null);
         }
 
+        return result;
+    }
+
+    private static InterruptedIOException timeout(String name, Duration timeout, IOException cause) {
+        InterruptedIOException exception = new InterruptedIOException(
+                name + " timed out after " + timeout.toMillis() + " ms");
+        exception.initCause(cause);
+        return exception;
     }
 
 }
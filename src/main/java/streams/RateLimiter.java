@@ -0,0 +1,60 @@
+package streams;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Keep throughput of one or more copies under a number of bytes per second.
+ * <p>
+ * Every chunk is given a time slot after the previous one, as long as its size needs at this rate,
+ * and caller sleeps until its slot starts.
+ * Time left unused while nobody copied can be caught up on, but only up to MAX_BURST,
+ * so a limiter idle for an hour does not let a whole hour of bytes through at once.
+ * One limiter can be shared by several MyBuffer copies to limit them together.
+ */
+public class RateLimiter {
+
+    private static final long MAX_BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long bytesPerSecond;
+
+    // time at which next chunk may be copied
+    private long nextFree = System.nanoTime();
+
+    public RateLimiter(long bytesPerSecond) {
+        if (bytesPerSecond < 1) {
+            throw new IllegalArgumentException("Rate must be at least one byte per second");
+        }
+
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Wait until bytes can be copied without going over the rate.
+     */
+    public void acquire(long bytes) throws InterruptedIOException {
+
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            nextFree = Math.max(nextFree, now - MAX_BURST_NANOS);
+            wait = nextFree - now;
+            nextFree += (long) (bytes * 1e9 / bytesPerSecond);
+        }
+
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for rate limiter");
+            }
+        }
+    }
+
+}
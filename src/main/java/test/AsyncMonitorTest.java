@@ -0,0 +1,94 @@
+package test;
+
+import files.AsyncMonitor;
+import files.MonitorEvent;
+import files.MonitorEventConsumer;
+import files.MyFileSearcher;
+import files.ThroughputCounter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class AsyncMonitorTest {
+
+    @Test
+    public void testManyPublishers() throws InterruptedException {
+        ThroughputCounter counter = new ThroughputCounter();
+        Path file = Paths.get("File.java");
+
+        try (AsyncMonitor monitor = new AsyncMonitor(8, counter)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        monitor.fileVisitAction(file, 10);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        assert counter.getFiles() == 40000;
+        assert counter.getBytes() == 400000;
+    }
+
+    @Test
+    public void testBatches() {
+        List<Boolean> endOfBatch = new ArrayList<>();
+        MonitorEventConsumer consumer = (event, last) -> endOfBatch.add(last);
+
+        try (AsyncMonitor monitor = new AsyncMonitor(16, consumer)) {
+            for (int i = 0; i < 1000; i++) {
+                monitor.preVisitAction(Paths.get("dir"));
+            }
+        }
+
+        assert endOfBatch.size() == 1000;
+        assert endOfBatch.get(999);
+    }
+
+    @Test
+    public void testSearchEvents() throws IOException {
+        Path root = Files.createTempDirectory("monitor");
+        try {
+            for (int i = 0; i < 10; i++) {
+                Path dir = Files.createDirectories(root.resolve("package" + i));
+                Files.writeString(dir.resolve("Type" + i + ".java"), "class Type" + i + " {\n}\n");
+            }
+
+            ThroughputCounter counter = new ThroughputCounter();
+            List<String> left = new ArrayList<>();
+            MonitorEventConsumer both = (event, endOfBatch) -> {
+                counter.onEvent(event, endOfBatch);
+                if (event.getType() == MonitorEvent.Type.DIRECTORY_LEFT && event.getFiles() == 1) {
+                    left.add(event.getPath().getFileName() + ":" + event.getBytesRead());
+                }
+            };
+
+            try (AsyncMonitor monitor = new AsyncMonitor(both)) {
+                new MyFileSearcher(monitor, root.toString(), 4, "java").getFoundJavaClasses();
+            }
+
+            assert counter.getDirectories() == 11;
+            assert counter.getFiles() == 10;
+            assert counter.getBytes() == 10 * "class Type0 {\n}\n".length();
+            assert left.size() == 10 && left.contains("package3:16");
+        } finally {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+}
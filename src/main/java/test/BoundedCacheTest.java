@@ -0,0 +1,89 @@
+package test;
+
+import hashtable.BoundedCache;
+import hashtable.LruPolicy;
+import hashtable.TinyLfuPolicy;
+import org.junit.Test;
+
+import java.time.Duration;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2, new LruPolicy<>());
+        cache.put("Ivana", 2);
+        cache.put("Ante", 3);
+        cache.get("Ivana");
+        cache.put("Jasna", 4);
+
+        assert cache.size() == 2;
+        assert cache.get("Ante") == null;
+        assert cache.get("Ivana") == 2;
+        assert cache.get("Jasna") == 4;
+        assert cache.evictionCount() == 1;
+    }
+
+    @Test
+    public void testWeightBound() {
+        BoundedCache<String, String> cache =
+                new BoundedCache<>(10, (k, v) -> v.length(), new LruPolicy<>(), null, null);
+        cache.put("a", "12345");
+        cache.put("b", "12345");
+        cache.put("c", "123");
+
+        assert cache.weightedSize() <= 10;
+        assert cache.get("a") == null;
+        assert cache.get("c").equals("123");
+    }
+
+    @Test
+    public void testTinyLfuKeepsPopularKeys() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(100, new TinyLfuPolicy<>(100));
+
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 50; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+
+        /* one-off scan of many new keys */
+        for (int key = 1000; key < 11000; key++) {
+            cache.put(key, key);
+        }
+
+        int popularLeft = 0;
+        for (int key = 0; key < 50; key++) {
+            if (cache.get(key) != null) {
+                popularLeft++;
+            }
+        }
+
+        assert cache.size() <= 100;
+        assert popularLeft > 40;
+    }
+
+    @Test
+    public void testExpireAfterWrite() throws InterruptedException {
+        BoundedCache<String, Integer> cache =
+                new BoundedCache<>(10, (k, v) -> 1, new LruPolicy<>(), Duration.ofMillis(1), null);
+        cache.put("Ivana", 2);
+        Thread.sleep(20);
+
+        assert cache.get("Ivana") == null;
+        assert cache.size() == 0;
+        assert cache.missCount() == 1;
+    }
+
+    @Test
+    public void testLoader() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(10, new LruPolicy<>());
+        assert cache.get(4, k -> k * k) == 16;
+        assert cache.get(4, k -> 0) == 16;
+        assert cache.hitCount() == 1;
+        assert cache.missCount() == 1;
+    }
+
+}
@@ -0,0 +1,85 @@
+package test;
+
+import files.ClassNameScanner;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ClassNameScannerTest {
+
+    private static final String[] LINES = {
+            "public class Main {",
+            "class Student implements Comparable<Student> {",
+            "    private static final class Entry<K, V> extends Object{",
+            "class lowercase {",
+            "class X {",
+            "class Ab",
+            "class Fooie",
+            "class Abc123{",
+            "abstract class Shape extends Base {",
+            "class A { } class Second {",
+            "// this class Comment  mentions a class",
+            "String s = \"class Quoted \";",
+            "class\tTabbed {",
+            "  \u017Eivot class Unicode {",
+            "",
+            "classy Name {",
+    };
+
+    private static List<String> expected(List<String> lines) {
+        String searchRegex = "(.*class\\s)([A-Z][a-zA-Z0-9]+)([ie<{ ].*)";
+        Pattern pattern = Pattern.compile(searchRegex);
+
+        List<String> found = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            Matcher matcher = pattern.matcher(lines.get(i));
+            if (lines.get(i).matches(searchRegex) && matcher.find()) {
+                found.add(matcher.group(2) + "@" + (i + 1));
+            }
+        }
+        return found;
+    }
+
+    private static List<String> scan(String content) throws IOException {
+        Path file = Files.createTempFile("scanner", ".java");
+        try {
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+            List<String> found = new ArrayList<>();
+            new ClassNameScanner().scan(file, (name, line) -> found.add(name + "@" + line));
+            return found;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSameAsRegex() throws IOException {
+        List<String> lines = List.of(LINES);
+        List<String> expected = expected(lines);
+
+        assert scan(String.join("\n", lines)).equals(expected);
+        assert scan(String.join("\r\n", lines) + "\r\n").equals(expected);
+        assert expected.contains("Student@2") && expected.contains("Second@10");
+    }
+
+    @Test
+    public void testLargeFile() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            lines.add(i % 1000 == 0 ? "class Generated" + i + " {" : "    int field" + i + " = " + i + ";");
+        }
+
+        List<String> found = scan(String.join("\n", lines));
+        assert found.size() == 100;
+        assert found.equals(expected(lines));
+    }
+
+}
@@ -0,0 +1,114 @@
+package test;
+
+import hashtable.ConcurrentSimpleHashtable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentSimpleHashtableTest {
+
+    private static final int THREADS = 8;
+
+    ConcurrentSimpleHashtable<String, Integer> examMarks = new ConcurrentSimpleHashtable<>(2);
+
+    /**
+     * Run task on several threads at once.
+     * Failed assertion or exception of any of them fails the test, not only its own thread.
+     */
+    private static void runInParallel(Runnable task) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(task);
+            thread.setUncaughtExceptionHandler((t, e) -> failure.compareAndSet(null, e));
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        // task is a Runnable, so it can only throw errors and unchecked exceptions
+        Throwable failed = failure.get();
+        if (failed instanceof Error) {
+            throw (Error) failed;
+        }
+        if (failed != null) {
+            throw (RuntimeException) failed;
+        }
+    }
+
+    @Test
+    public void testSingleThread() {
+        examMarks.put("Ivana", 2);
+        examMarks.put("Ante", 2);
+        examMarks.put("Ivana", 5);
+        assert examMarks.get("Ivana") == 5;
+        assert examMarks.size() == 2;
+        assert examMarks.putIfAbsent("Ante", 4) == 2;
+        assert examMarks.containsValue(5);
+        examMarks.remove("Ivana");
+        assert !examMarks.containsKey("Ivana");
+        assert examMarks.size() == 1;
+    }
+
+    @Test
+    public void testConcurrentPutWithResize() throws InterruptedException {
+        ConcurrentSimpleHashtable<Integer, Integer> numbers = new ConcurrentSimpleHashtable<>(2);
+        AtomicInteger nextThread = new AtomicInteger();
+
+        runInParallel(() -> {
+            int offset = nextThread.getAndIncrement() * 100000;
+            for (int i = offset; i < offset + 20000; i++) {
+                numbers.put(i, i);
+                assert numbers.get(i) == i;
+            }
+        });
+
+        assert numbers.size() == THREADS * 20000;
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = t * 100000; i < t * 100000 + 20000; i++) {
+                assert numbers.get(i) == i;
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentMerge() throws InterruptedException {
+        ConcurrentSimpleHashtable<Integer, Integer> counters = new ConcurrentSimpleHashtable<>();
+
+        runInParallel(() -> {
+            for (int i = 0; i < 50000; i++) {
+                counters.merge(i % 1000, 1, Integer::sum);
+            }
+        });
+
+        assert counters.size() == 1000;
+        for (int i = 0; i < 1000; i++) {
+            assert counters.get(i) == THREADS * 50;
+        }
+    }
+
+    @Test
+    public void testComputeIfAbsentCalledOnce() throws InterruptedException {
+        ConcurrentSimpleHashtable<Integer, Integer> cache = new ConcurrentSimpleHashtable<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        runInParallel(() -> {
+            for (int i = 0; i < 1000; i++) {
+                cache.computeIfAbsent(i, k -> {
+                    calls.incrementAndGet();
+                    return k * k;
+                });
+            }
+        });
+
+        assert calls.get() == 1000;
+        assert cache.get(30) == 900;
+    }
+
+}
@@ -0,0 +1,130 @@
+package test;
+
+import hashtable.MappedHashtable;
+import hashtable.RobinHoodHashtable;
+import hashtable.Serializer;
+import hashtable.SimpleHashtable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MappedHashtableTest {
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        SimpleHashtable<String, Integer> examMarks = new SimpleHashtable<>();
+        for (int i = 0; i < 10000; i++) {
+            examMarks.put("Student" + i, i % 5 + 1);
+        }
+
+        Path file = Files.createTempFile("marks", ".snapshot");
+        try {
+            examMarks.writeSnapshot(file, Serializer.STRING, Serializer.INTEGER);
+
+            try (MappedHashtable<String, Integer> mapped =
+                         MappedHashtable.open(file, Serializer.STRING, Serializer.INTEGER)) {
+                assert mapped.size() == 10000;
+                for (int i = 0; i < 10000; i++) {
+                    assert mapped.get("Student" + i) == i % 5 + 1;
+                }
+                assert !mapped.containsKey("Student10000");
+                assert mapped.getBytes("Student7").getInt() == 3;
+
+                int[] count = {0};
+                mapped.forEach((name, mark) -> count[0]++);
+                assert count[0] == 10000;
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testFlatTableSnapshot() throws IOException {
+        RobinHoodHashtable<Long, String> names = new RobinHoodHashtable<>();
+        names.put(1L, "Ivana");
+        names.put(2L, "Ante");
+
+        Path file = Files.createTempFile("names", ".snapshot");
+        try {
+            names.writeSnapshot(file, Serializer.LONG, Serializer.STRING);
+
+            try (MappedHashtable<Long, String> mapped = MappedHashtable.open(file, Serializer.LONG, Serializer.STRING)) {
+                assert mapped.get(1L).equals("Ivana");
+                assert mapped.get(2L).equals("Ante");
+                assert mapped.get(3L) == null;
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotSnapshot() throws IOException {
+        Path file = Files.createTempFile("garbage", ".snapshot");
+        try {
+            Files.write(file, new byte[64]);
+            MappedHashtable.open(file, Serializer.STRING, Serializer.STRING);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testFailedWriteKeepsOldSnapshot() throws IOException {
+        SimpleHashtable<String, Integer> examMarks = new SimpleHashtable<>();
+        examMarks.put("Ivana", 2);
+        examMarks.put("Ante", 3);
+
+        Path file = Files.createTempFile("marks", ".snapshot");
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            MappedHashtable.write(file, 2, examMarks::forEach, Serializer.STRING, Serializer.INTEGER);
+
+            /* given size is too small, so writing fails half way */
+            try {
+                MappedHashtable.write(file, 1, examMarks::forEach, Serializer.STRING, Serializer.INTEGER);
+                assert false;
+            } catch (IllegalArgumentException e) {
+                assert !Files.exists(temporary);
+            }
+
+            try (MappedHashtable<String, Integer> mapped = MappedHashtable.open(file, Serializer.STRING, Serializer.INTEGER)) {
+                assert mapped.size() == 2;
+                assert mapped.get("Ante") == 3;
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        SimpleHashtable<String, Integer> examMarks = new SimpleHashtable<>();
+        examMarks.put("Ivana", 5);
+
+        Path file = Files.createTempFile("marks", ".snapshot");
+        try {
+            examMarks.writeSnapshot(file, Serializer.STRING, Serializer.INTEGER);
+
+            MappedHashtable<String, Integer> mapped = MappedHashtable.open(file, Serializer.STRING, Serializer.INTEGER);
+            ByteBuffer view = mapped.getBytes("Ivana");
+            mapped.close();
+
+            // view still points into mapping, which is released only once view is gone too
+            assert view.getInt(0) == 5;
+            try {
+                mapped.get("Ivana");
+                assert false;
+            } catch (IllegalStateException e) {
+                assert e.getMessage().equals("Table is closed");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}
@@ -0,0 +1,306 @@
+package test;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import streams.CopyResult;
+import streams.MyBuffer;
+import streams.RateLimiter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MyBufferTest {
+
+    private Path input;
+    private Path output;
+    private byte[] content;
+
+    @Before
+    public void createInput() throws IOException {
+        content = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(content);
+
+        input = Files.createTempFile("buffer", ".in");
+        output = Files.createTempFile("buffer", ".out");
+        Files.write(input, content);
+    }
+
+    @After
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    @Test
+    public void testFileStreams() throws IOException {
+        CopyResult result = new MyBuffer(new FileInputStream(input.toFile()),
+                new FileOutputStream(output.toFile())).run();
+        assert result.getBytesCopied() == content.length;
+        assert Arrays.equals(Files.readAllBytes(output), content);
+    }
+
+    @Test
+    public void testFileChannelFromPosition() throws IOException {
+        FileChannel source = FileChannel.open(input, StandardOpenOption.READ);
+        source.position(1000);
+
+        new MyBuffer(source, FileChannel.open(output, StandardOpenOption.WRITE)).run();
+        assert Arrays.equals(Files.readAllBytes(output), Arrays.copyOfRange(content, 1000, content.length));
+    }
+
+    @Test
+    public void testPipeToFile() throws Exception {
+        Pipe pipe = Pipe.open();
+
+        Thread writer = new Thread(() -> {
+            try (Pipe.SinkChannel sink = pipe.sink()) {
+                // small chunks, so reader often finds pipe empty before it ends
+                for (int i = 0; i < content.length; i += 1000) {
+                    sink.write(ByteBuffer.wrap(content, i, Math.min(1000, content.length - i)));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        writer.start();
+
+        new MyBuffer(pipe.source(), FileChannel.open(output, StandardOpenOption.WRITE)).run();
+        writer.join();
+
+        assert Arrays.equals(Files.readAllBytes(output), content);
+    }
+
+    @Test
+    public void testFifo() throws Exception {
+        Path fifo = input.resolveSibling(input.getFileName() + ".fifo");
+        boolean created;
+        try {
+            created = new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor() == 0;
+        } catch (IOException e) {
+            created = false;
+        }
+        Assume.assumeTrue("mkfifo is not available", created);
+
+        try {
+            Thread writer = new Thread(() -> {
+                try (FileOutputStream out = new FileOutputStream(fifo.toFile())) {
+                    out.write(content);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            writer.start();
+
+            // stream of a FIFO is a FileInputStream too, but its channel can not seek
+            CopyResult result = new MyBuffer(new FileInputStream(fifo.toFile()),
+                    new FileOutputStream(output.toFile())).run();
+            writer.join();
+
+            assert result.getBytesCopied() == content.length;
+            assert Arrays.equals(Files.readAllBytes(output), content);
+        } finally {
+            Files.deleteIfExists(fifo);
+        }
+    }
+
+    @Test
+    public void testSlowStream() throws Exception {
+        PipedInputStream in = new PipedInputStream();
+        PipedOutputStream pipeOut = new PipedOutputStream(in);
+
+        Thread writer = new Thread(() -> {
+            try (PipedOutputStream out = pipeOut) {
+                // pauses leave nothing available to read, which is not the end of stream
+                for (int i = 0; i < 5; i++) {
+                    out.write(content, i * 1000, 1000);
+                    Thread.sleep(20);
+                }
+            } catch (IOException | InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+        writer.start();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MyBuffer buffer = new MyBuffer(in, out);
+        buffer.setReadTimeout(Duration.ofSeconds(5));
+        CopyResult result = buffer.run();
+        writer.join();
+
+        assert result.getBytesCopied() == 5000;
+        assert Arrays.equals(out.toByteArray(), Arrays.copyOf(content, 5000));
+        assert result.getElapsed().toMillis() >= 80;
+    }
+
+    @Test
+    public void testRateLimiter() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MyBuffer buffer = new MyBuffer(new ByteArrayInputStream(content, 0, 300_000), out);
+        buffer.setBufferSize(10_000);
+        buffer.setRateLimiter(new RateLimiter(1_000_000));
+
+        // 300 ms at this rate, less what limiter lets through at once
+        CopyResult result = buffer.run();
+        assert result.getBytesCopied() == 300_000;
+        assert result.getElapsed().toMillis() >= 150;
+        assert result.getBytesPerSecond() < 2_000_000;
+    }
+
+    @Test
+    public void testReadTimeout() throws IOException {
+        try (ServerSocket server = new ServerSocket(0);
+             Socket client = new Socket("localhost", server.getLocalPort());
+             Socket silent = server.accept()) {
+
+            // connected, but never sends anything
+            assert silent.isConnected();
+            MyBuffer buffer = new MyBuffer(client.getInputStream(), new ByteArrayOutputStream());
+            buffer.setReadTimeout(Duration.ofMillis(100));
+
+            try {
+                buffer.run();
+                assert false;
+            } catch (InterruptedIOException e) {
+                assert e.getMessage().startsWith("Read timed out");
+            }
+            assert client.isClosed();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBufferSize() {
+        new MyBuffer(new ByteArrayInputStream(content), new ByteArrayOutputStream()).setBufferSize(0);
+    }
+
+    /**
+     * Stream which takes 10 ms for every read, like a slow disk.
+     */
+    private InputStream slowInput(int chunks, int chunkSize) {
+        return new InputStream() {
+            private int read;
+
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (read == chunks) {
+                    return -1;
+                }
+                sleep(10);
+                int size = Math.min(len, chunkSize);
+                System.arraycopy(content, read * chunkSize, b, off, size);
+                read++;
+                return size;
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testPipelined() throws IOException {
+        for (int buffers : new int[]{1, 4}) {
+            ByteArrayOutputStream written = new ByteArrayOutputStream();
+            OutputStream slowOutput = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    sleep(10);
+                    written.write(b, off, len);
+                }
+            };
+
+            MyBuffer buffer = new MyBuffer(slowInput(20, 10_000), slowOutput);
+            buffer.setBufferSize(10_000);
+            buffer.setPipelineBuffers(buffers);
+            CopyResult result = buffer.run();
+
+            assert result.getBytesCopied() == 200_000;
+            assert Arrays.equals(written.toByteArray(), Arrays.copyOf(content, 200_000));
+
+            // 20 reads and 20 writes of 10 ms, one after another or side by side
+            if (buffers == 1) {
+                assert result.getElapsed().toMillis() >= 400;
+            } else {
+                assert result.getElapsed().toMillis() < 340;
+            }
+        }
+    }
+
+    @Test
+    public void testPipelinedChannels() throws Exception {
+        Pipe pipe = Pipe.open();
+
+        Thread writer = new Thread(() -> {
+            try (Pipe.SinkChannel sink = pipe.sink()) {
+                sink.write(ByteBuffer.wrap(content));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        writer.start();
+
+        MyBuffer buffer = new MyBuffer(pipe.source(), FileChannel.open(output, StandardOpenOption.WRITE));
+        buffer.setPipelineBuffers(3);
+        assert buffer.run().getBytesCopied() == content.length;
+        writer.join();
+
+        assert Arrays.equals(Files.readAllBytes(output), content);
+    }
+
+    @Test
+    public void testPipelinedWriteFailure() {
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Disk full");
+            }
+        };
+
+        MyBuffer buffer = new MyBuffer(slowInput(100, 1000), failing);
+        buffer.setBufferSize(1000);
+        buffer.setPipelineBuffers(2);
+
+        try {
+            buffer.run();
+            assert false;
+        } catch (IOException e) {
+            assert e.getMessage().equals("Disk full");
+        }
+    }
+
+}
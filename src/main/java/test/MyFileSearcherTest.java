@@ -0,0 +1,366 @@
+package test;
+
+import files.AdditionalActionMonitor;
+import files.ClassHit;
+import files.ClassWatcher;
+import files.LineMatch;
+import files.MyFileSearcher;
+import files.TrigramIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class MyFileSearcherTest {
+
+    private Path root;
+
+    private final AtomicInteger visitedDirectories = new AtomicInteger();
+
+    private final AdditionalActionMonitor countingMonitor = new AdditionalActionMonitor() {
+        @Override
+        public void preVisitAction(Path dir) {
+            visitedDirectories.incrementAndGet();
+        }
+
+        @Override
+        public void postVisitAction(Path dir) {
+        }
+    };
+
+    @Before
+    public void createTree() throws IOException {
+        root = Files.createTempDirectory("searcher");
+        for (int i = 0; i < 20; i++) {
+            Path dir = Files.createDirectories(root.resolve("module" + i).resolve("src"));
+            Files.writeString(dir.resolve("Service" + i + ".java"),
+                    "package a;\n\npublic class Service" + i + " implements Runnable {\n"
+                            + "    static class Inner" + i + "{ }\n}\n");
+            Files.writeString(dir.resolve("notes" + i + ".txt"), "class Ignored" + i + " {\n");
+        }
+    }
+
+    @After
+    public void deleteTree() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testSequential() {
+        Set<String> classes = new MyFileSearcher(countingMonitor, root.toString(), "java").getFoundJavaClasses();
+        assert classes.size() == 40;
+        assert classes.contains("Service7") && classes.contains("Inner7");
+        assert !classes.contains("Ignored7");
+        assert visitedDirectories.get() == 41;
+    }
+
+    @Test
+    public void testParallel() {
+        Set<String> sequential = new MyFileSearcher(countingMonitor, root.toString(), "java").getFoundJavaClasses();
+        Set<String> parallel = new MyFileSearcher(countingMonitor, root.toString(), 4, "java").getFoundJavaClasses();
+        assert parallel.equals(sequential);
+        assert visitedDirectories.get() == 82;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelism() {
+        new MyFileSearcher(countingMonitor, root.toString(), 0, "java");
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        Path indexFile = Files.createTempFile("searcher", ".index");
+        try {
+            // pretend sources were written long ago, so index trusts their timestamps
+            FileTime longAgo = FileTime.from(System.currentTimeMillis() - 60_000, TimeUnit.MILLISECONDS);
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    Files.setLastModifiedTime(path, longAgo);
+                }
+            }
+
+            MyFileSearcher first = new MyFileSearcher(countingMonitor, root.toString(), "java");
+            first.setIndexFile(indexFile);
+            assert first.getFoundJavaClasses().size() == 40;
+
+            // same size and time, so file is not read again and old class is still reported
+            Path unchanged = root.resolve("module1/src/Service1.java");
+            Files.writeString(unchanged, Files.readString(unchanged).replace("Service1", "Changed1"));
+            Files.setLastModifiedTime(unchanged, longAgo);
+
+            Files.writeString(root.resolve("module2/src/Service2.java"), "class Rewritten2 {\n");
+            Files.delete(root.resolve("module3/src/Service3.java"));
+            Files.writeString(root.resolve("module4/src/Added.java"), "class Added {\n");
+
+            MyFileSearcher second = new MyFileSearcher(countingMonitor, root.toString(), 4, "java");
+            second.setIndexFile(indexFile);
+            Set<String> classes = second.getFoundJavaClasses();
+
+            assert classes.contains("Service1") && !classes.contains("Changed1");
+            assert classes.contains("Rewritten2") && !classes.contains("Service2") && !classes.contains("Inner2");
+            assert !classes.contains("Service3") && !classes.contains("Inner3");
+            assert classes.contains("Added");
+            assert classes.size() == 40 - 2 + 1 - 2 + 1;
+        } finally {
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    @Test
+    public void testDamagedIndex() throws IOException {
+        Path indexFile = Files.createTempFile("searcher", ".index");
+        try {
+            // valid header, then an entry with negative number of classes
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(indexFile))) {
+                out.writeInt(0x46494458);
+                out.writeInt(2);
+                out.writeLong(System.currentTimeMillis() * 1_000_000);
+                out.writeInt(1);
+                out.writeUTF(root.resolve("module1/src/Service1.java").toAbsolutePath().toString());
+                out.writeLong(10);
+                out.writeLong(0);
+                out.writeInt(-5);
+            }
+
+            MyFileSearcher searcher = new MyFileSearcher(countingMonitor, root.toString(), "java");
+            searcher.setIndexFile(indexFile);
+            assert searcher.getFoundJavaClasses().size() == 40;
+            assert !Files.exists(indexFile.resolveSibling(indexFile.getFileName() + ".tmp"));
+        } finally {
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        MyFileSearcher searcher = new MyFileSearcher(countingMonitor, root.toString(), "java");
+
+        try (ClassWatcher watcher = searcher.watch(Duration.ofMillis(50))) {
+            assert watcher.getClasses().size() == 40;
+
+            BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+            watcher.subscribe((added, removed) -> {
+                added.forEach(c -> changes.add("+" + c));
+                removed.forEach(c -> changes.add("-" + c));
+            });
+
+            Files.writeString(root.resolve("module0/src/Fresh.java"), "class Fresh {\n");
+            assert "+Fresh".equals(changes.poll(10, TimeUnit.SECONDS));
+
+            Files.delete(root.resolve("module0/src/Fresh.java"));
+            assert "-Fresh".equals(changes.poll(10, TimeUnit.SECONDS));
+
+            Path created = Files.createDirectories(root.resolve("created/deeper"));
+            Files.writeString(created.resolve("Nested.java"), "class Nested {\n");
+            assert "+Nested".equals(changes.poll(10, TimeUnit.SECONDS));
+
+            Files.writeString(root.resolve("module5/src/Service5.java"), "class Renamed5 {\n");
+            Set<String> batch = Set.of(changes.poll(10, TimeUnit.SECONDS), changes.poll(10, TimeUnit.SECONDS),
+                    changes.poll(10, TimeUnit.SECONDS));
+            assert batch.equals(Set.of("+Renamed5", "-Service5", "-Inner5"));
+            assert watcher.getClasses().contains("Renamed5") && !watcher.getClasses().contains("Service5");
+        }
+    }
+
+    @Test
+    public void testWatchSurvivesBrokenDirectories() throws Exception {
+        MyFileSearcher searcher = new MyFileSearcher(countingMonitor, root.toString(), "java");
+        searcher.setIgnoreFiles(".gitignore");
+
+        Path staging = Files.createTempDirectory("staging");
+        try (ClassWatcher watcher = searcher.watch(Duration.ofMillis(50))) {
+            BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+            watcher.subscribe((added, removed) -> added.forEach(c -> changes.add("+" + c)));
+
+            // directories gone before watcher gets to register them
+            for (int i = 0; i < 20; i++) {
+                Path gone = Files.createDirectories(root.resolve("gone" + i + "/deeper"));
+                Files.delete(gone);
+                Files.delete(gone.getParent());
+            }
+
+            // directory whose ignore file can not be read, moved in at once
+            Path broken = Files.createDirectory(staging.resolve("broken"));
+            Files.write(broken.resolve(".gitignore"), new byte[]{(byte) 0xff, (byte) 0xfe});
+            Files.move(broken, root.resolve("broken"), StandardCopyOption.ATOMIC_MOVE);
+            Thread.sleep(200);
+
+            Files.writeString(root.resolve("module0/src/After.java"), "class After {\n");
+            assert "+After".equals(changes.poll(10, TimeUnit.SECONDS));
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    @Test
+    public void testStreamClassHits() throws IOException {
+        MyFileSearcher searcher = new MyFileSearcher(countingMonitor, root.toString(), "java");
+
+        try (Stream<ClassHit> hits = searcher.streamClassHits()) {
+            List<ClassHit> all = hits.collect(Collectors.toList());
+            assert all.size() == 40;
+            assert all.contains(new ClassHit("Service3", root.resolve("module3/src/Service3.java"), 3));
+            assert all.contains(new ClassHit("Inner3", root.resolve("module3/src/Service3.java"), 4));
+        }
+
+        try (Stream<ClassHit> hits = searcher.streamClassHits()) {
+            assert hits.limit(3).count() == 3;
+        }
+    }
+
+    @Test
+    public void testPruning() throws IOException {
+        Files.writeString(root.resolve(".gitignore"), "# build output\nbuild/\n*.gen.java\n!Keep.gen.java\n");
+        Files.writeString(root.resolve("module1/.gitignore"), "/src/Service1.java\n");
+        Files.createDirectories(root.resolve("build/classes"));
+        Files.writeString(root.resolve("build/classes/Built.java"), "class Built {\n");
+        Files.createDirectories(root.resolve(".git/objects"));
+        Files.writeString(root.resolve(".git/objects/Git.java"), "class Git {\n");
+        Files.createDirectories(root.resolve("vendor/lib"));
+        Files.writeString(root.resolve("vendor/lib/Vendored.java"), "class Vendored {\n");
+        Files.writeString(root.resolve("module2/src/Skip.gen.java"), "class Generated {\n");
+        Files.writeString(root.resolve("module2/src/Keep.gen.java"), "class KeptGenerated {\n");
+        Files.writeString(root.resolve("module3/src/Script.groovy"), "class Script {\n");
+
+        for (int parallelism : new int[]{1, 4}) {
+            visitedDirectories.set(0);
+
+            MyFileSearcher searcher = new MyFileSearcher(countingMonitor, root.toString(), parallelism, "java");
+            searcher.setIgnoreFiles(".gitignore");
+            searcher.setExcludeGlobs("vendor/");
+            searcher.setIncludeGlobs("**/*.groovy");
+            Set<String> classes = searcher.getFoundJavaClasses();
+
+            assert !classes.contains("Built") && !classes.contains("Git") && !classes.contains("Vendored");
+            assert !classes.contains("Generated") && classes.contains("KeptGenerated");
+            assert !classes.contains("Service1") && classes.contains("Inner2");
+            assert classes.contains("Script");
+            assert classes.size() == 40 - 2 + 1 + 1;
+
+            // build, .git and vendor were never entered
+            assert visitedDirectories.get() == 41;
+
+            // lazy stream follows the same rules
+            try (Stream<ClassHit> hits = searcher.streamClassHits()) {
+                assert hits.map(ClassHit::getClassName).collect(Collectors.toSet()).equals(classes);
+            }
+        }
+    }
+
+    @Test
+    public void testTrigramIndex() throws IOException {
+        Path indexFile = Files.createTempFile("searcher", ".trigrams");
+        try {
+            for (int parallelism : new int[]{1, 4}) {
+                MyFileSearcher searcher = new MyFileSearcher(countingMonitor, root.toString(), parallelism, "java");
+                searcher.setTrigramIndexFile(indexFile);
+                assert searcher.getFoundJavaClasses().size() == 40;
+
+                TrigramIndex index = TrigramIndex.open(indexFile);
+                assert index.getFileCount() == 20;
+
+                // only file which has every trigram of text is a candidate
+                Path service7 = root.resolve("module7/src/Service7.java").toAbsolutePath().normalize();
+                assert index.candidateFiles("class Service7 ").equals(List.of(service7));
+                assert index.candidateFiles("Missing").isEmpty();
+                assert index.candidateFiles("a").size() == 20;
+
+                List<LineMatch> matches = index.search("Inner12{");
+                assert matches.equals(List.of(new LineMatch(root.resolve("module12/src/Service12.java")
+                        .toAbsolutePath().normalize(), 4, "    static class Inner12{ }")));
+                assert index.search("Runnable").size() == 20;
+
+                assert index.searchRegex("class Service1[0-9]? ").size() == 11;
+                assert index.searchRegex("Inner3\\{|Service4 imp").size() == 2;
+                assert index.searchRegex("(?i)SERVICE5 ").size() == 1;
+                assert index.searchRegex("^}$").size() == 20;
+
+                // quantifiers and escapes with arguments are not taken as literal text
+                assert index.searchRegex("Servic{1,100}e3 ").size() == 1;
+                assert index.searchRegex("\\p{Upper}ervice4 ").size() == 1;
+                assert index.searchRegex("\\x53ervice5 ").size() == 1;
+                assert index.searchRegex("\\u0053ervice6 ").size() == 1;
+                assert index.searchRegex("\\0123ervice8 ").size() == 1;
+                assert index.searchRegex("\\Qclass Service9\\E implements").size() == 1;
+            }
+        } finally {
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    @Test
+    public void testTrigramIndexWithIndex() throws IOException {
+        Path indexFile = Files.createTempFile("searcher", ".index");
+        Path trigramFile = Files.createTempFile("searcher", ".trigrams");
+        try {
+            // pretend sources were written long ago, so index trusts their timestamps
+            FileTime longAgo = FileTime.from(System.currentTimeMillis() - 60_000, TimeUnit.MILLISECONDS);
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    Files.setLastModifiedTime(path, longAgo);
+                }
+            }
+
+            MyFileSearcher first = new MyFileSearcher(countingMonitor, root.toString(), "java");
+            first.setIndexFile(indexFile);
+            first.setTrigramIndexFile(trigramFile);
+            assert first.getFoundJavaClasses().size() == 40;
+
+            // same size and time, so file is not read again and its trigrams come from last trigram index
+            Path unchanged = root.resolve("module1/src/Service1.java").toAbsolutePath().normalize();
+            Files.writeString(unchanged, Files.readString(unchanged).replace("Service1", "Changed1"));
+            Files.setLastModifiedTime(unchanged, longAgo);
+
+            Path rewritten = root.resolve("module2/src/Service2.java").toAbsolutePath().normalize();
+            Files.writeString(rewritten, "class Rewritten2 {\n");
+
+            MyFileSearcher second = new MyFileSearcher(countingMonitor, root.toString(), 4, "java");
+            second.setIndexFile(indexFile);
+            second.setTrigramIndexFile(trigramFile);
+            assert second.getFoundJavaClasses().contains("Rewritten2");
+
+            TrigramIndex index = TrigramIndex.open(trigramFile);
+            assert index.getFileCount() == 20;
+            assert index.candidateFiles("class Service1 ").equals(List.of(unchanged));
+            assert index.candidateFiles("Changed1").isEmpty();
+            assert index.candidateFiles("Rewritten2").equals(List.of(rewritten));
+            assert index.candidateFiles("class Service2 ").isEmpty();
+
+            // trigram index skipped one search, so it does not match index of scanned files anymore
+            MyFileSearcher third = new MyFileSearcher(countingMonitor, root.toString(), "java");
+            third.setIndexFile(indexFile);
+            third.getFoundJavaClasses();
+
+            MyFileSearcher fourth = new MyFileSearcher(countingMonitor, root.toString(), "java");
+            fourth.setIndexFile(indexFile);
+            fourth.setTrigramIndexFile(trigramFile);
+            fourth.getFoundJavaClasses();
+
+            index = TrigramIndex.open(trigramFile);
+            assert index.candidateFiles("Changed1").equals(List.of(unchanged));
+            assert index.candidateFiles("class Service1 ").isEmpty();
+        } finally {
+            Files.deleteIfExists(indexFile);
+            Files.deleteIfExists(trigramFile);
+        }
+    }
+
+}
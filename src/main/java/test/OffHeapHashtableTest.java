@@ -0,0 +1,89 @@
+package test;
+
+import hashtable.OffHeapHashtable;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class OffHeapHashtableTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        try (OffHeapHashtable records = new OffHeapHashtable(2, 64)) {
+            records.put(bytes("Ivana"), bytes("2"));
+            records.put(bytes("Ante"), bytes("3"));
+            records.put(bytes("Ivana"), bytes("5"));
+
+            assert records.size() == 2;
+            assert new String(records.getBytes(bytes("Ivana")), StandardCharsets.UTF_8).equals("5");
+            assert records.get(bytes("Ante")).equals(ByteBuffer.wrap(bytes("3")));
+            assert records.get(bytes("Jasna")) == null;
+
+            records.remove(bytes("Ante"));
+            assert !records.containsKey(bytes("Ante"));
+            assert records.size() == 1;
+            assert records.garbageBytes() > 0;
+        }
+    }
+
+    @Test
+    public void testGrowAndCompact() {
+        try (OffHeapHashtable records = new OffHeapHashtable(2, 1024)) {
+            for (int i = 0; i < 10000; i++) {
+                records.put(bytes("key" + i), bytes("value" + i));
+            }
+            for (int i = 0; i < 10000; i += 2) {
+                records.remove(bytes("key" + i));
+            }
+
+            ByteBuffer view = records.get(bytes("key1"));
+            long before = records.allocatedBytes();
+            records.compact();
+
+            // old slabs are only dropped, view taken before still reads its value
+            System.gc();
+            assert view.equals(ByteBuffer.wrap(bytes("value1")));
+            assert records.allocatedBytes() < before;
+            assert records.garbageBytes() == 0;
+
+            assert records.size() == 5000;
+            for (int i = 1; i < 10000; i += 2) {
+                assert records.get(bytes("key" + i)).equals(ByteBuffer.wrap(bytes("value" + i)));
+            }
+            assert !records.containsKey(bytes("key0"));
+        }
+    }
+
+    @Test
+    public void testIndexSegments() {
+        // index of 2^19 slots is spread over several buffers
+        try (OffHeapHashtable records = new OffHeapHashtable()) {
+            for (int i = 0; i < 300_000; i++) {
+                records.put(bytes("key" + i), bytes("value" + i));
+            }
+
+            assert records.size() == 300_000;
+            for (int i = 0; i < 300_000; i += 7) {
+                assert records.get(bytes("key" + i)).equals(ByteBuffer.wrap(bytes("value" + i)));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManySlots() {
+        new OffHeapHashtable(Integer.MAX_VALUE, 1024);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() {
+        OffHeapHashtable records = new OffHeapHashtable();
+        records.close();
+        records.get(bytes("Ivana"));
+    }
+
+}
@@ -0,0 +1,78 @@
+package test;
+
+import hashtable.IntDoubleHashtable;
+import hashtable.IntIntHashtable;
+import hashtable.LongObjectHashtable;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PrimitiveHashtableTest {
+
+    @Test
+    public void testZeroKey() {
+        IntIntHashtable ids = new IntIntHashtable();
+        assert !ids.containsKey(0);
+        ids.put(0, 7);
+        assert ids.containsKey(0);
+        assert ids.get(0) == 7;
+        assert ids.size() == 1;
+        ids.remove(0);
+        assert ids.isEmpty();
+        assert ids.getOrDefault(0, -1) == -1;
+    }
+
+    @Test
+    public void testIntIntAgainstHashMap() {
+        IntIntHashtable ids = new IntIntHashtable(2);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random rand = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            int key = rand.nextInt(5000) - 2500;
+            if (rand.nextInt(3) == 0) {
+                ids.remove(key);
+                expected.remove(key);
+            } else {
+                ids.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assert ids.size() == expected.size();
+        for (int key = -2500; key < 2500; key++) {
+            assert ids.containsKey(key) == expected.containsKey(key);
+            assert ids.getOrDefault(key, -1) == expected.getOrDefault(key, -1);
+        }
+    }
+
+    @Test
+    public void testLongObject() {
+        LongObjectHashtable<String> names = new LongObjectHashtable<>();
+        for (long id = 0; id < 1000; id++) {
+            names.put(id << 32, "Name" + id);
+        }
+        assert names.size() == 1000;
+        assert names.get(5L << 32).equals("Name5");
+        assert names.get(5L) == null;
+        assert names.containsValue("Name999");
+        names.remove(5L << 32);
+        assert !names.containsKey(5L << 32);
+        assert names.size() == 999;
+    }
+
+    @Test
+    public void testIntDouble() {
+        IntDoubleHashtable averages = new IntDoubleHashtable();
+        averages.put(1, 3.75);
+        averages.put(2, 4.5);
+        averages.put(1, 5.0);
+        assert averages.get(1) == 5.0;
+        assert averages.getOrDefault(3, Double.NaN) != averages.getOrDefault(3, Double.NaN);
+        assert averages.containsValue(4.5);
+        assert averages.size() == 2;
+    }
+
+}
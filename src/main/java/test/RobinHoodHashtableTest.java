@@ -0,0 +1,79 @@
+package test;
+
+import hashtable.RobinHoodHashtable;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class RobinHoodHashtableTest {
+
+    RobinHoodHashtable<String, Integer> examMarks = new RobinHoodHashtable<>(2);
+
+    @Test
+    public void testEmpty() {
+        assert examMarks.isEmpty();
+        assert examMarks.size() == 0;
+    }
+
+    @Test
+    public void testValueUpdate() {
+        examMarks.put("Ivana", 2);
+        examMarks.put("Ante", 2);
+        examMarks.put("Jasna", 2);
+        examMarks.put("Kristina", 5);
+        examMarks.put("Ivana", 5);
+        assert examMarks.get("Ivana") == 5;
+        assert examMarks.size() == 4;
+    }
+
+    @Test
+    public void testContains() {
+        examMarks.put("Ivana", 2);
+        examMarks.put("Ante", 3);
+        assert examMarks.containsKey("Ivana");
+        assert !examMarks.containsKey("Jasna");
+        assert examMarks.containsValue(3);
+        assert !examMarks.containsValue(4);
+    }
+
+    @Test
+    public void testRemove() {
+        examMarks.put("Ivana", 2);
+        examMarks.put("Ante", 2);
+        examMarks.put("Jasna", 2);
+        examMarks.remove("Ante");
+        examMarks.remove("Kristina");
+        assert !examMarks.containsKey("Ante");
+        assert examMarks.containsKey("Ivana");
+        assert examMarks.containsKey("Jasna");
+        assert examMarks.size() == 2;
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        RobinHoodHashtable<Integer, Integer> numbers = new RobinHoodHashtable<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random rand = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            /* multiples of 64 collide a lot in small tables */
+            Integer key = rand.nextInt(5000) * 64;
+            if (rand.nextInt(3) == 0) {
+                numbers.remove(key);
+                expected.remove(key);
+            } else {
+                numbers.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assert numbers.size() == expected.size();
+        for (int key = 0; key < 5000 * 64; key += 64) {
+            assert numbers.containsKey(key) == expected.containsKey(key);
+            assert expected.get(key) == null || numbers.get(key).equals(expected.get(key));
+        }
+    }
+
+}
@@ -1,8 +1,20 @@
 package test;
 
+import hashtable.FrozenHashtable;
+import hashtable.HashtableStats;
 import hashtable.SimpleHashtable;
 import org.junit.Test;
 
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public class SimpleHashtableTest {
 
     SimpleHashtable<String, Integer> examMarks = new SimpleHashtable<>(2);
@@ -126,4 +138,330 @@ public class SimpleHashtableTest {
         assert true;
     }
 
+    @Test
+    public void testGrowth() {
+        SimpleHashtable<Integer, Integer> numbers = new SimpleHashtable<>(2);
+        for (int i = 0; i < 10000; i++) {
+            numbers.put(i, i * 2);
+        }
+        assert numbers.size() == 10000;
+        assert numbers.capacity() >= 10000 / 0.75;
+        for (int i = 0; i < 10000; i++) {
+            assert numbers.get(i) == i * 2;
+        }
+        assert numbers.containsValue(19998);
+    }
+
+    @Test
+    public void testShrink() {
+        SimpleHashtable<Integer, Integer> numbers = new SimpleHashtable<>(4, 0.75, true);
+        for (int i = 0; i < 10000; i++) {
+            numbers.put(i, i);
+        }
+        int grownCapacity = numbers.capacity();
+        for (int i = 0; i < 9990; i++) {
+            numbers.remove(i);
+        }
+        assert numbers.size() == 10;
+        assert numbers.capacity() < grownCapacity;
+        for (int i = 9990; i < 10000; i++) {
+            assert numbers.containsKey(i);
+        }
+        assert !numbers.containsKey(0);
+    }
+
+    @Test
+    public void testNegativeHashCode() {
+        SimpleHashtable<Integer, Integer> numbers = new SimpleHashtable<>();
+        numbers.put(Integer.MIN_VALUE, 1);
+        numbers.put(-1, 2);
+        assert numbers.get(Integer.MIN_VALUE) == 1;
+        assert numbers.get(-1) == 2;
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        /* "Aa" and "BB" have the same hashcode, so do all their concatenations */
+        SimpleHashtable<String, Integer> collisions = new SimpleHashtable<>(64);
+        List<String> keys = new ArrayList<>();
+        keys.add("");
+        for (int i = 0; i < 10; i++) {
+            List<String> longer = new ArrayList<>();
+            for (String k : keys) {
+                longer.add(k + "Aa");
+                longer.add(k + "BB");
+            }
+            keys = longer;
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            collisions.put(keys.get(i), i);
+        }
+        assert collisions.size() == keys.size();
+        for (int i = 0; i < keys.size(); i++) {
+            assert collisions.get(keys.get(i)) == i;
+        }
+
+        for (int i = 0; i < keys.size() - 3; i++) {
+            collisions.remove(keys.get(i));
+        }
+        assert collisions.size() == 3;
+        assert !collisions.containsKey(keys.get(0));
+        assert collisions.containsKey(keys.get(keys.size() - 1));
+        assert collisions.containsValue(keys.size() - 1);
+    }
+
+    /**
+     * Key whose compareTo() looks only at group, while equals() looks at id too.
+     */
+    private static final class GroupedKey implements Comparable<GroupedKey> {
+        private final int group;
+        private final int id;
+
+        GroupedKey(int group, int id) {
+            this.group = group;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(GroupedKey other) {
+            return Integer.compare(group, other.group);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof GroupedKey && ((GroupedKey) o).group == group && ((GroupedKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            /* every key collides */
+            return 7;
+        }
+    }
+
+    @Test
+    public void testTreeKeysEqualByCompareTo() {
+        SimpleHashtable<GroupedKey, Integer> table = new SimpleHashtable<>(64);
+        for (int group = 0; group < 4; group++) {
+            for (int id = 0; id < 5; id++) {
+                table.put(new GroupedKey(group, id), group * 10 + id);
+            }
+        }
+
+        /* slot is a tree now, keys comparing as equal must still be kept apart */
+        assert table.size() == 20;
+        for (int group = 0; group < 4; group++) {
+            for (int id = 0; id < 5; id++) {
+                assert table.get(new GroupedKey(group, id)) == group * 10 + id;
+            }
+        }
+
+        table.remove(new GroupedKey(2, 0));
+        table.remove(new GroupedKey(2, 3));
+        assert table.size() == 18;
+        assert !table.containsKey(new GroupedKey(2, 0)) && !table.containsKey(new GroupedKey(2, 3));
+        assert table.get(new GroupedKey(2, 4)) == 24 && table.get(new GroupedKey(2, 1)) == 21;
+
+        int[] count = {0};
+        table.forEach((key, value) -> count[0]++);
+        assert count[0] == 18;
+    }
+
+    @Test
+    public void testViews() {
+        examMarks.put("Ivana", 2);
+        examMarks.put("Ante", 3);
+        examMarks.put("Jasna", 4);
+
+        assert examMarks.keySet().size() == 3;
+        assert examMarks.keySet().contains("Ante");
+        assert examMarks.values().stream().mapToInt(Integer::intValue).sum() == 9;
+
+        for (Map.Entry<String, Integer> entry : examMarks) {
+            entry.setValue(entry.getValue() + 1);
+        }
+        assert examMarks.get("Ivana") == 3;
+
+        Iterator<String> keys = examMarks.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().startsWith("J")) {
+                keys.remove();
+            }
+        }
+        assert examMarks.size() == 2;
+        assert !examMarks.containsKey("Jasna");
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testFailFastIterator() {
+        examMarks.put("Ivana", 2);
+        examMarks.put("Ante", 3);
+        for (String key : examMarks.keySet()) {
+            examMarks.put(key + "2", 1);
+        }
+    }
+
+    @Test
+    public void testForEach() {
+        examMarks.put("Ivana", 2);
+        examMarks.put("Ante", 3);
+        int[] sum = {0};
+        examMarks.forEach((name, mark) -> sum[0] += mark);
+        assert sum[0] == 5;
+    }
+
+    @Test
+    public void testParallelStream() {
+        SimpleHashtable<Integer, Integer> numbers = new SimpleHashtable<>();
+        for (int i = 0; i < 100000; i++) {
+            numbers.put(i, i);
+        }
+        long sum = numbers.values().parallelStream().mapToLong(Integer::longValue).sum();
+        assert sum == 99999L * 100000 / 2;
+        assert numbers.keySet().parallelStream().count() == 100000;
+    }
+
+    @Test
+    public void testBatchOperations() {
+        SimpleHashtable<Integer, Integer> numbers = new SimpleHashtable<>();
+        Integer[] keys = new Integer[2000];
+        Integer[] values = new Integer[2000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 7;
+            values[i] = i;
+        }
+
+        numbers.putAll(keys, values);
+        assert numbers.size() == 2000;
+        assert numbers.capacity() >= 2000 / 0.75;
+
+        Integer[] lookup = {0, 7, 8, null, 13993};
+        Integer[] out = new Integer[lookup.length];
+        assert numbers.getAll(lookup, out) == 3;
+        assert out[0] == 0 && out[1] == 1 && out[2] == null && out[3] == null && out[4] == 1999;
+
+        assert numbers.removeAll(new Integer[]{0, 7, 8}) == 2;
+        assert numbers.size() == 1998;
+
+        Map<Integer, Integer> more = new HashMap<>();
+        more.put(-1, -1);
+        more.put(7, 100);
+        numbers.putAll(more);
+        assert numbers.size() == 2000;
+        assert numbers.get(7) == 100;
+    }
+
+    @Test
+    public void testStats() {
+        SimpleHashtable<Integer, Integer> numbers = new SimpleHashtable<>();
+        numbers.put(1, 1);
+        assert numbers.stats().getGetCount() == 0;
+
+        numbers.enableStats();
+        for (int i = 0; i < 100; i++) {
+            numbers.put(i, i);
+        }
+        numbers.get(5);
+        numbers.get(500);
+        numbers.containsKey(6);
+
+        HashtableStats stats = numbers.stats();
+        assert stats.getSize() == 100;
+        assert stats.getCapacity() == numbers.capacity();
+        assert stats.getPutCount() == 100;
+        assert stats.getGetCount() == 3;
+        assert stats.getHitCount() == 2 && stats.getMissCount() == 1;
+        assert stats.getAverageProbesPerGet() > 0;
+        assert stats.getRehashCount() > 0;
+
+        long slots = 0;
+        long pairs = 0;
+        long[] histogram = stats.getChainLengthHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            slots += histogram[i];
+            pairs += i * histogram[i];
+        }
+        assert pairs == 100;
+        assert slots >= stats.getCapacity();
+    }
+
+    @Test
+    public void testStatsMBean() throws Exception {
+        SimpleHashtable<String, Integer> table = new SimpleHashtable<>();
+        table.put("a", 1);
+        table.put("b", 2);
+
+        ObjectName name = table.registerMBean("test");
+        try {
+            Object size = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Size");
+            assert size.equals(2);
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testFreeze() {
+        SimpleHashtable<Object, Integer> table = new SimpleHashtable<>();
+        for (int i = 0; i < 10000; i++) {
+            table.put("key" + i, i);
+        }
+        /* "Aa" and "BB" have equal hash codes */
+        table.put("Aa", -1);
+        table.put("BB", -2);
+
+        FrozenHashtable<Object, Integer> frozen = table.freeze();
+        table.put("later", 0);
+
+        assert frozen.size() == 10002;
+        for (int i = 0; i < 10000; i++) {
+            assert frozen.get("key" + i) == i;
+        }
+        assert frozen.get("Aa") == -1 && frozen.get("BB") == -2;
+        assert frozen.get("later") == null;
+        assert frozen.get("missing") == null && frozen.get(null) == null;
+        assert frozen.containsKey("key5") && !frozen.containsKey("key10000");
+        assert frozen.containsValue(9999) && !frozen.containsValue(10000);
+
+        int[] count = {0};
+        frozen.forEach((key, value) -> count[0]++);
+        assert count[0] == 10002;
+
+        FrozenHashtable<Object, Integer> empty = new SimpleHashtable<Object, Integer>().freeze();
+        assert empty.isEmpty() && empty.get("a") == null;
+    }
+
+    @Test
+    public void testValueIndex() {
+        SimpleHashtable<String, Integer> table = new SimpleHashtable<>();
+        table.put("a", 1);
+        table.put("b", 1);
+        table.enableValueIndex();
+        table.put("c", 2);
+
+        assert table.containsValue(1) && table.containsValue(2);
+        assert table.keysForValue(1).equals(Set.of("a", "b"));
+
+        table.put("a", 3);
+        assert table.keysForValue(1).equals(Set.of("b"));
+        assert table.keysForValue(3).equals(Set.of("a"));
+
+        table.remove("b");
+        assert !table.containsValue(1);
+        assert table.keysForValue(1).isEmpty();
+
+        for (Map.Entry<String, Integer> entry : table.entrySet()) {
+            if (entry.getKey().equals("c")) {
+                assert entry.setValue(4) == 2;
+            }
+        }
+        assert table.get("c") == 4;
+        assert !table.containsValue(2) && table.containsValue(4);
+
+        table.disableValueIndex();
+        assert table.keysForValue(4).equals(Set.of("c"));
+        assert table.containsValue(3);
+    }
+
 }